@@ -0,0 +1,98 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Données des benchmarks : PDF fournis (lus depuis le classpath, donc aussi depuis benchmarks.jar)
+ * et corpus synthétiques reproductibles.
+ */
+final class BenchmarkData {
+
+    static final int DIMENSION = 384;   // dimension d'AllMiniLmL6V2
+    static final int DOCUMENTS = 10;
+
+    private static final String[] WORDS = {
+            "modèle", "langage", "document", "recherche", "embedding", "vecteur", "segment", "requête",
+            "réponse", "contexte", "génération", "récupération", "apprentissage", "données", "score",
+            "pertinence", "index", "magasin", "LangChain4j", "RAG", "LLM", "fine-tuning", "prompt"
+    };
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * "rag.pdf", "autre-document.pdf" ou "synthetic" (environ 200 000 caractères).
+     */
+    static Document document(String name) {
+        if ("synthetic".equals(name)) {
+            return Document.from(syntheticText(200_000, 42));
+        }
+        try (InputStream in = BenchmarkData.class.getResourceAsStream("/" + name)) {
+            if (in == null) {
+                throw new IllegalArgumentException("Ressource introuvable : " + name);
+            }
+            return new ApacheTikaDocumentParser().parse(in);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String syntheticText(int length, long seed) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder(length + 32);
+        int wordsInSentence = 0;
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]);
+            if (++wordsInSentence > 8 + random.nextInt(12)) {
+                text.append(random.nextInt(5) == 0 ? ".\n\n" : ". ");
+                wordsInSentence = 0;
+            } else {
+                text.append(' ');
+            }
+        }
+        return text.toString();
+    }
+
+    static List<Embedding> randomEmbeddings(int count, long seed) {
+        Random random = new Random(seed);
+        List<Embedding> embeddings = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            float[] vector = new float[DIMENSION];
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+            embeddings.add(Embedding.from(vector));
+        }
+        return embeddings;
+    }
+
+    /**
+     * Segments répartis à tour de rôle sur {@link #DOCUMENTS} fichiers, avec le numéro de page
+     * (métadonnées indexées par VectorEmbeddingStore).
+     */
+    static List<TextSegment> segments(int count) {
+        List<TextSegment> segments = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Metadata metadata = new Metadata()
+                    .put(Document.FILE_NAME, fileName(i % DOCUMENTS))
+                    .put(StreamingPdfLoader.PAGE, i / DOCUMENTS / 4 + 1);
+            segments.add(TextSegment.from("segment " + i, metadata));
+        }
+        return segments;
+    }
+
+    static String fileName(int document) {
+        return "document-" + document + ".pdf";
+    }
+}
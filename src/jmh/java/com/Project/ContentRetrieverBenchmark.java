@@ -0,0 +1,85 @@
+package com.Project;
+
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * EmbeddingStoreContentRetriever.retrieve de bout en bout (embedding de la requête + recherche)
+ * sur les segments des deux PDF fournis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class ContentRetrieverBenchmark {
+
+    private static final String[] QUESTIONS = {
+            "Qu'est-ce que le RAG ?",
+            "Quelle est la différence entre RAG et fine-tuning ?",
+            "Comment fonctionnent les AiServices de LangChain4j ?",
+            "À quoi sert la modération ?"
+    };
+
+    @Param({"inmemory", "vector"})
+    String store;
+
+    @Param({"2", "10"})
+    int maxResults;
+
+    @Param({"0.5", "0.0"})
+    double minScore;
+
+    private ContentRetriever contentRetriever;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        DocumentSplitter splitter = DocumentSplitters.recursive(600, 0);
+        List<TextSegment> segments = new ArrayList<>();
+        segments.addAll(splitter.split(BenchmarkData.document("rag.pdf")));
+        segments.addAll(splitter.split(BenchmarkData.document("autre-document.pdf")));
+
+        EmbeddingStore<TextSegment> embeddingStore =
+                "inmemory".equals(store) ? new InMemoryEmbeddingStore<>() : new VectorEmbeddingStore();
+        embeddingStore.addAll(embeddingModel.embedAll(segments).content(), segments);
+
+        contentRetriever = EmbeddingStoreContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .embeddingModel(embeddingModel)
+                .maxResults(maxResults)
+                .minScore(minScore)
+                .build();
+    }
+
+    @Benchmark
+    public List<Content> retrieve() {
+        return contentRetriever.retrieve(Query.from(QUESTIONS[next++ % QUESTIONS.length]));
+    }
+}
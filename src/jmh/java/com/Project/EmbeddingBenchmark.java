@@ -0,0 +1,54 @@
+package com.Project;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût d'AllMiniLmL6V2EmbeddingModel.embedAll sur 128 segments de rag.pdf, selon la taille des lots.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class EmbeddingBenchmark {
+
+    @Param({"1", "8", "32", "128"})
+    int batchSize;
+
+    private EmbeddingModel embeddingModel;
+    private List<TextSegment> segments;
+
+    @Setup
+    public void setUp() {
+        embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        List<TextSegment> all = DocumentSplitters.recursive(600, 0).split(BenchmarkData.document("rag.pdf"));
+        segments = all.subList(0, Math.min(128, all.size()));
+    }
+
+    @Benchmark
+    public void embedAll(Blackhole blackhole) {
+        for (int start = 0; start < segments.size(); start += batchSize) {
+            List<TextSegment> batch = segments.subList(start, Math.min(start + batchSize, segments.size()));
+            blackhole.consume(embeddingModel.embedAll(batch));
+        }
+    }
+}
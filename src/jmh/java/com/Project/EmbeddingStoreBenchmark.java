@@ -0,0 +1,119 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * addAll et search des magasins d'embeddings sur un corpus synthétique (vecteurs de dimension 384).
+ * searchFiltered restreint la recherche à un document sur dix : filtre testé segment par segment
+ * (inmemory, hnsw) ou résolu par l'index de métadonnées (vector, sharded).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class EmbeddingStoreBenchmark {
+
+    private static final int QUERIES = 64;
+
+    @Param({"inmemory", "vector", "hnsw", "sharded"})
+    String store;
+
+    @Param({"1000", "10000", "100000"})
+    int corpusSize;
+
+    @Param({"2", "10"})
+    int maxResults;
+
+    private List<Embedding> embeddings;
+    private List<TextSegment> segments;
+    private EmbeddingStore<TextSegment> embeddingStore;
+    private EmbeddingSearchRequest[] requests;
+    private EmbeddingSearchRequest[] filteredRequests;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        embeddings = BenchmarkData.randomEmbeddings(corpusSize, 1);
+        segments = BenchmarkData.segments(corpusSize);
+        embeddingStore = newStore();
+        embeddingStore.addAll(embeddings, segments);
+
+        List<Embedding> queries = BenchmarkData.randomEmbeddings(QUERIES, 2);
+        Filter oneDocument = metadataKey(Document.FILE_NAME).isEqualTo(BenchmarkData.fileName(3));
+        requests = new EmbeddingSearchRequest[QUERIES];
+        filteredRequests = new EmbeddingSearchRequest[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            requests[i] = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(queries.get(i))
+                    .maxResults(maxResults)
+                    .minScore(0.0)
+                    .build();
+            filteredRequests[i] = EmbeddingSearchRequest.builder()
+                    .queryEmbedding(queries.get(i))
+                    .maxResults(maxResults)
+                    .minScore(0.0)
+                    .filter(oneDocument)
+                    .build();
+        }
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> search() {
+        return embeddingStore.search(requests[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    public EmbeddingSearchResult<TextSegment> searchFiltered() {
+        return embeddingStore.search(filteredRequests[next++ & (QUERIES - 1)]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Measurement(iterations = 3)
+    public EmbeddingStore<TextSegment> addAll() {
+        EmbeddingStore<TextSegment> fresh = newStore();
+        fresh.addAll(embeddings, segments);
+        return fresh;
+    }
+
+    private EmbeddingStore<TextSegment> newStore() {
+        switch (store) {
+            case "inmemory":
+                return new InMemoryEmbeddingStore<>();
+            case "vector":
+                return new VectorEmbeddingStore();
+            case "hnsw":
+                return new HnswEmbeddingStore();
+            case "sharded":
+                return ShardedEmbeddingStore.builder().build();
+            default:
+                throw new IllegalArgumentException(store);
+        }
+    }
+}
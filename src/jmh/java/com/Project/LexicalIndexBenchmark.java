@@ -0,0 +1,58 @@
+package com.Project;
+
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche BM25 de {@link LexicalIndex} sur les segments d'un document (voie lexicale du retriever hybride).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LexicalIndexBenchmark {
+
+    private static final String[] QUERIES = {
+            "AiServices",
+            "@Tool outils",
+            "StreamingChatLanguageModel streaming",
+            "modération OpenAiModerationModel",
+            "Qu'est-ce que le RAG et le fine-tuning ?"
+    };
+
+    @Param({"autre-document.pdf", "synthetic"})
+    String document;
+
+    @Param({"2", "10"})
+    int maxResults;
+
+    private LexicalIndex index;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        List<TextSegment> segments = DocumentSplitters.recursive(600, 0).split(BenchmarkData.document(document));
+        index = LexicalIndex.build(segments);
+    }
+
+    @Benchmark
+    public List<LexicalIndex.Match> search() {
+        return index.search(QUERIES[next++ % QUERIES.length], maxResults);
+    }
+}
@@ -0,0 +1,55 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.segment.TextSegment;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût de DocumentSplitters.recursive selon la taille des segments et le chevauchement.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SplitterBenchmark {
+
+    @Param({"rag.pdf", "autre-document.pdf", "synthetic"})
+    String document;
+
+    @Param({"300", "600", "1000"})
+    int maxSegmentSize;
+
+    @Param({"0", "50"})
+    int maxOverlap;
+
+    private Document parsed;
+    private DocumentSplitter splitter;
+
+    @Setup
+    public void setUp() {
+        parsed = BenchmarkData.document(document);
+        splitter = DocumentSplitters.recursive(maxSegmentSize, maxOverlap);
+    }
+
+    @Benchmark
+    public List<TextSegment> split() {
+        return splitter.split(parsed);
+    }
+}
@@ -0,0 +1,107 @@
+package com.Project;
+
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Test de charge du {@link AssistantServer} avec un modèle de chat local ({@link FakeChatModel}) :
+ * la recherche (embedding de la requête, magasin) et le serveur sont réels, seul Gemini est simulé.
+ * <p>
+ * Arguments : [utilisateurs simultanés] [requêtes par utilisateur] [latence simulée du LM en ms],
+ * par défaut 1000 5 200.
+ */
+public class AssistantLoadTest {
+
+    private static final List<String> QUESTIONS = List.of(
+            "Qu'est-ce que le RAG ?",
+            "Quelle est la différence entre RAG et fine-tuning ?",
+            "À quoi servent les embeddings ?",
+            "Comment découper un document en segments ?",
+            "Peux-tu résumer ta réponse précédente ?");
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int requestsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        long latencyMillis = args.length > 2 ? Long.parseLong(args[2]) : 200;
+
+        // ============ SERVEUR AVEC MODÈLE SIMULÉ ============
+        RagMetrics metrics = new RagMetrics();
+        BatchingEmbeddingModel embeddingModel = BatchingEmbeddingModel.fromSystemProperties();
+        ContentRetriever contentRetriever = AssistantServer.localRetriever(embeddingModel, metrics);
+        BoundedChatMemoryStore memoryStore = new BoundedChatMemoryStore(10_000, Duration.ofMinutes(30));
+        // Même câblage que AssistantServer : première question de chaque session cherchée dans le cache
+        SemanticResponseCache responseCache =
+                new SemanticResponseCache(embeddingModel, 0.92, 10_000, Duration.ofHours(1));
+        SessionAssistant assistant = AssistantServer.createAssistant(
+                new InstrumentedChatModel(new FakeChatModel(Duration.ofMillis(latencyMillis)), metrics),
+                contentRetriever, memoryStore, responseCache);
+        AssistantServer server = AssistantServer.start(0, assistant, metrics);
+
+        // ============ CLIENTS ============
+        HttpClient client = HttpClient.newBuilder()
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .build();
+        long[] latencies = new long[users * requestsPerUser];
+        AtomicInteger errors = new AtomicInteger();
+
+        System.out.println(" " + users + " utilisateurs x " + requestsPerUser + " requêtes, LM simulé à "
+                + latencyMillis + " ms...");
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < users; u++) {
+                int user = u;
+                clients.submit(() -> {
+                    URI uri = URI.create("http://localhost:" + server.port() + "/chat?session="
+                            + URLEncoder.encode("user-" + user, StandardCharsets.UTF_8));
+                    for (int r = 0; r < requestsPerUser; r++) {
+                        HttpRequest request = HttpRequest.newBuilder(uri)
+                                .POST(HttpRequest.BodyPublishers.ofString(QUESTIONS.get(r % QUESTIONS.size())))
+                                .build();
+                        long sent = System.nanoTime();
+                        try {
+                            HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+                            if (response.statusCode() != 200) {
+                                errors.incrementAndGet();
+                            }
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                        }
+                        latencies[user * requestsPerUser + r] = System.nanoTime() - sent;
+                    }
+                    return null;
+                });
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        server.stop();
+
+        // ============ RÉSULTATS ============
+        Arrays.sort(latencies);
+        System.out.printf(" Débit : %.0f requêtes/s (%d requêtes en %.1f s), erreurs : %d%n",
+                latencies.length / (elapsed / 1e9), latencies.length, elapsed / 1e9, errors.get());
+        System.out.printf(" Latence : p50 %d ms, p95 %d ms, p99 %d ms, max %d ms%n",
+                percentile(latencies, 0.50), percentile(latencies, 0.95),
+                percentile(latencies, 0.99), latencies[latencies.length - 1] / 1_000_000);
+        System.out.println(" Sessions en mémoire : " + memoryStore.activeSessions());
+        System.out.println(" " + responseCache.stats());
+        System.out.println(" " + embeddingModel.stats());
+        System.out.println(" Côté serveur, par étape :");
+        System.out.println(metrics.snapshot().summary());
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted[(int) Math.min(sorted.length - 1, sorted.length * p)] / 1_000_000;
+    }
+}
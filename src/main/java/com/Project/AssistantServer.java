@@ -0,0 +1,221 @@
+package com.Project;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Serveur HTTP de l'assistant, multi-sessions (serveur HTTP du JDK, un thread virtuel par requête).
+ * <p>
+ * POST /chat?session=&lt;id&gt; avec la question dans le corps ; la réponse est en texte brut.
+ * Chaque session a sa propre mémoire de conversation ({@link BoundedChatMemoryStore}) ;
+ * le modèle d'embeddings, le magasin et l'assistant sont partagés par toutes les sessions,
+ * comme le cache de réponses ({@link SemanticResponseCache}) consulté pour la première
+ * question de chaque session.
+ * GET /metrics donne les mesures {@link RagMetrics} au format Prometheus.
+ */
+public class AssistantServer {
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+
+    private AssistantServer(HttpServer server, ExecutorService executor) {
+        this.server = server;
+        this.executor = executor;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+
+        RagMetrics metrics = new RagMetrics(SampledPayloadLog.fromSystemProperties());
+
+        String llmKey = System.getenv("GEMINI_API_KEY");
+        ChatLanguageModel model = new InstrumentedChatModel(GoogleAiGeminiChatModel.builder()
+                .apiKey(llmKey)
+                .modelName("gemini-2.0-flash-exp")
+                .temperature(0.3)
+                .build(), metrics);
+
+        // Requêtes simultanées des sessions regroupées en lots (-Drag.embedding.* pour les réglages)
+        EmbeddingModel embeddingModel = BatchingEmbeddingModel.fromSystemProperties();
+        ContentRetriever contentRetriever = localRetriever(embeddingModel, metrics);
+        BoundedChatMemoryStore memoryStore = new BoundedChatMemoryStore(10_000, Duration.ofMinutes(30));
+        SemanticResponseCache responseCache =
+                new SemanticResponseCache(embeddingModel, 0.92, 10_000, Duration.ofHours(1));
+
+        AssistantServer server = start(port,
+                createAssistant(model, contentRetriever, memoryStore, responseCache), metrics);
+        System.out.println(" Serveur prêt : curl -d \"Qu'est-ce que le RAG ?\" "
+                + "http://localhost:" + server.port() + "/chat?session=alice");
+    }
+
+    /**
+     * Assistant partagé ; la mémoire de chaque session est cherchée dans memoryStore à chaque requête.
+     * <p>
+     * Avec @MemoryId, AiServices garderait pour toujours un objet ChatMemory par session :
+     * chaque requête construit donc un {@link Assistant} sans identifiant autour de la mémoire
+     * de sa session (quelques dizaines de µs), et rien ne survit à l'éviction de la session.
+     */
+    public static SessionAssistant createAssistant(ChatLanguageModel model,
+                                                   ContentRetriever contentRetriever,
+                                                   BoundedChatMemoryStore memoryStore) {
+        return createAssistant(model, contentRetriever, memoryStore, null);
+    }
+
+    /**
+     * Idem, avec la première question de chaque session cherchée dans responseCache (si non null) :
+     * les sessions s'ouvrent souvent sur les mêmes questions, les suivantes dépendent de la conversation.
+     */
+    public static SessionAssistant createAssistant(ChatLanguageModel model,
+                                                   ContentRetriever contentRetriever,
+                                                   BoundedChatMemoryStore memoryStore,
+                                                   SemanticResponseCache responseCache) {
+        ChatMemoryProvider memories = memoryStore.provider(10);
+        return (sessionId, question) -> {
+            ChatMemory memory = memories.get(sessionId);
+            Function<String, String> compute = q -> AiServices.builder(Assistant.class)
+                    .chatLanguageModel(model)
+                    .chatMemory(memory)
+                    .contentRetriever(contentRetriever)
+                    .build()
+                    .chat(q);
+            return responseCache == null ? compute.apply(question) : responseCache.answer(question, memory, compute);
+        };
+    }
+
+    /**
+     * Retriever sur rag.pdf, avec les mêmes réglages que les programmes console.
+     */
+    public static ContentRetriever localRetriever(EmbeddingModel embeddingModel) throws Exception {
+        return localRetriever(embeddingModel, null);
+    }
+
+    /**
+     * Idem, avec l'embedding des requêtes et la recherche mesurés dans metrics (si non null).
+     */
+    public static ContentRetriever localRetriever(EmbeddingModel embeddingModel, RagMetrics metrics) throws Exception {
+        URL fileUrl = AssistantServer.class.getResource("/rag.pdf");
+        Path path = Paths.get(fileUrl.toURI());
+
+        PersistentEmbeddingIndex.Contents contents;
+        try (IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .maxSegmentSize(600)
+                .maxOverlap(0)
+                .build()) {
+            contents = pipeline.ingest(path);
+        }
+        EmbeddingStore<TextSegment> embeddingStore = EmbeddingStores.of(contents);
+        if (metrics != null) {
+            embeddingStore = new InstrumentedEmbeddingStore(embeddingStore, metrics);
+            embeddingModel = new InstrumentedEmbeddingModel(embeddingModel, metrics);
+        }
+
+        return EmbeddingStoreContentRetriever.builder()
+                .embeddingStore(embeddingStore)
+                .embeddingModel(embeddingModel)
+                .maxResults(2)
+                .minScore(0.5)
+                .build();
+    }
+
+    public static AssistantServer start(int port, SessionAssistant assistant) throws IOException {
+        return start(port, assistant, null);
+    }
+
+    /**
+     * Démarre le serveur ; avec metrics, la durée de chaque requête est mesurée (étape TOTAL)
+     * et /metrics est exposé.
+     */
+    public static AssistantServer start(int port, SessionAssistant assistant, RagMetrics metrics) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 1024);
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/chat", exchange -> {
+            long start = System.nanoTime();
+            handleChat(exchange, assistant);
+            if (metrics != null) {
+                metrics.record(RagMetrics.Stage.TOTAL, System.nanoTime() - start);
+            }
+        });
+        if (metrics != null) {
+            server.createContext("/metrics", metrics::handle);
+        }
+        server.start();
+        return new AssistantServer(server, executor);
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public void stop() {
+        server.stop(0);
+        executor.shutdown();
+    }
+
+    private static void handleChat(HttpExchange exchange, SessionAssistant assistant) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                send(exchange, 405, "POST attendu");
+                return;
+            }
+            String sessionId = queryParameter(exchange, "session");
+            String question = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8).trim();
+            if (sessionId == null || question.isEmpty()) {
+                send(exchange, 400, "Paramètre session et question obligatoires");
+                return;
+            }
+            try {
+                send(exchange, 200, assistant.chat(sessionId, question));
+            } catch (RuntimeException e) {
+                send(exchange, 500, "Erreur : " + e.getMessage());
+            }
+        }
+    }
+
+    private static String queryParameter(HttpExchange exchange, String name) {
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0 && pair.substring(0, separator).equals(name)) {
+                return URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static void send(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+}
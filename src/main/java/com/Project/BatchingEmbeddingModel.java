@@ -0,0 +1,342 @@
+package com.Project;
+
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.AbstractInProcessEmbeddingModel;
+import dev.langchain4j.model.embedding.onnx.OnnxBertBiEncoder;
+import dev.langchain4j.model.embedding.onnx.PoolingMode;
+import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Moteur d'embeddings : un nombre fixe de threads de calcul, des lots par longueur de texte
+ * et le regroupement des requêtes simultanées.
+ * <p>
+ * embedAll trie les textes par longueur décroissante et les découpe en lots de {@code batchSize}
+ * textes de longueur voisine : les lots longs partent en premier, aucun thread ne finit seul
+ * sur un texte long, et l'ordre du résultat est celui de l'appel.
+ * <p>
+ * embed (une requête) passe par une file : un thread de regroupement attend au plus
+ * {@code maxWait} d'autres requêtes et envoie le tout en un lot. Sous forte concurrence, le
+ * nombre de calculs simultanés reste égal à {@code threads} au lieu d'un par session.
+ */
+public class BatchingEmbeddingModel implements EmbeddingModel, AutoCloseable {
+
+    private record Pending(String text, CompletableFuture<Embedding> result) {
+    }
+
+    private final EmbeddingModel delegate;
+    private final String identity;
+    private final int batchSize;
+    private final long maxWaitNanos;
+    private final ExecutorService workers;
+    // Un lot de requêtes n'est formé que lorsqu'un thread de calcul est libre : pendant le calcul
+    // des autres lots, les requêtes s'accumulent et partent ensemble
+    private final Semaphore idleWorkers;
+    private final BlockingQueue<Pending> queries = new LinkedBlockingQueue<>();
+    private final Thread coalescer;
+    private volatile boolean closed;
+
+    private final AtomicLong queryBatches = new AtomicLong();
+    private final AtomicLong coalescedQueries = new AtomicLong();
+
+    private BatchingEmbeddingModel(Builder builder) {
+        this.delegate = builder.delegate != null ? builder.delegate : allMiniLmL6V2(builder.intraOpThreads);
+        this.identity = builder.delegate != null
+                ? builder.delegate.getClass().getName()
+                : AllMiniLmL6V2EmbeddingModel.class.getName();
+        this.batchSize = builder.batchSize;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+        this.workers = Executors.newFixedThreadPool(builder.threads, runnable -> {
+            Thread thread = new Thread(runnable, "embedding");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.idleWorkers = new Semaphore(builder.threads);
+        this.coalescer = Thread.ofPlatform().daemon().name("embedding-coalescer").start(this::coalesce);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Réglages lus dans -Drag.embedding.threads, .batchSize, .maxWaitMs et .intraOpThreads.
+     */
+    public static BatchingEmbeddingModel fromSystemProperties() {
+        Builder builder = builder();
+        builder.threads(Integer.getInteger("rag.embedding.threads", builder.threads));
+        builder.batchSize(Integer.getInteger("rag.embedding.batchSize", builder.batchSize));
+        builder.maxWait(Duration.ofMillis(Long.getLong("rag.embedding.maxWaitMs", builder.maxWait.toMillis())));
+        builder.intraOpThreads(Integer.getInteger("rag.embedding.intraOpThreads", builder.intraOpThreads));
+        return builder.build();
+    }
+
+    // ============ LOTS PAR LONGUEUR ============
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        int count = textSegments.size();
+        if (count <= 1) {
+            return delegate.embedAll(textSegments);
+        }
+        Integer[] order = new Integer[count];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingInt((Integer i) -> textSegments.get(i).text().length()).reversed());
+
+        List<CompletableFuture<Void>> batches = new ArrayList<>();
+        Embedding[] embeddings = new Embedding[count];
+        for (int start = 0; start < count; start += batchSize) {
+            Integer[] indices = Arrays.copyOfRange(order, start, Math.min(start + batchSize, count));
+            batches.add(CompletableFuture.runAsync(() -> {
+                List<TextSegment> batch = new ArrayList<>(indices.length);
+                for (int i : indices) {
+                    batch.add(textSegments.get(i));
+                }
+                List<Embedding> computed = delegate.embedAll(batch).content();
+                for (int i = 0; i < indices.length; i++) {
+                    embeddings[indices[i]] = computed.get(i);
+                }
+            }, workers));
+        }
+        try {
+            CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+        return Response.from(Arrays.asList(embeddings));
+    }
+
+    // ============ REGROUPEMENT DES REQUÊTES ============
+    @Override
+    public Response<Embedding> embed(String text) {
+        if (closed) {
+            throw new IllegalStateException("Moteur d'embeddings fermé");
+        }
+        CompletableFuture<Embedding> result = new CompletableFuture<>();
+        queries.add(new Pending(text, result));
+        if (closed) {
+            // close() a pu vider la file juste avant l'ajout
+            failQueued();
+        }
+        try {
+            return Response.from(result.join());
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException runtime ? runtime : e;
+        }
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return embed(textSegment.text());
+    }
+
+    private void coalesce() {
+        List<Pending> batch = new ArrayList<>(batchSize);
+        try {
+            while (!closed) {
+                idleWorkers.acquire();
+                Pending first = queries.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    idleWorkers.release();
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxWaitNanos;
+                while (batch.size() < batchSize) {
+                    Pending next = queries.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                queryBatches.incrementAndGet();
+                coalescedQueries.addAndGet(batch.size() - 1);
+                List<Pending> ready = List.copyOf(batch);
+                workers.execute(() -> embedQueries(ready));
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RejectedExecutionException e) {
+            // Threads de calcul arrêtés pendant la formation du lot
+        } finally {
+            fail(batch);
+        }
+    }
+
+    // Requêtes restées dans la file après close() : leurs appelants ne doivent pas attendre indéfiniment
+    private void failQueued() {
+        List<Pending> queued = new ArrayList<>();
+        queries.drainTo(queued);
+        fail(queued);
+    }
+
+    private static void fail(List<Pending> pending) {
+        IllegalStateException closedError = new IllegalStateException("Moteur d'embeddings fermé");
+        pending.forEach(p -> p.result().completeExceptionally(closedError));
+    }
+
+    private void embedQueries(List<Pending> batch) {
+        try {
+            List<TextSegment> segments = batch.stream().map(pending -> TextSegment.from(pending.text())).toList();
+            List<Embedding> embeddings = delegate.embedAll(segments).content();
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(embeddings.get(i));
+            }
+        } catch (RuntimeException e) {
+            batch.forEach(pending -> pending.result().completeExceptionally(e));
+        } finally {
+            idleWorkers.release();
+        }
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    /**
+     * Modèle sous-jacent, pour la clé de l'index persistant : mêmes poids, mêmes embeddings.
+     */
+    String identity() {
+        return identity;
+    }
+
+    public String stats() {
+        long batches = queryBatches.get();
+        return String.format("Embeddings de requêtes : %d lots, %.1f requêtes par lot",
+                batches, batches == 0 ? 0 : (batches + coalescedQueries.get()) / (double) batches);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        coalescer.interrupt();
+        workers.shutdown();
+        failQueued();
+    }
+
+    // ============ ALLMINILML6V2 AVEC PARALLÉLISME INTRA-OPÉRATEUR RÉGLABLE ============
+
+    /**
+     * AllMiniLmL6V2 avec sa propre session ONNX : {@code intraOpThreads} threads par inférence
+     * (1 quand plusieurs threads de calcul tournent déjà en parallèle, pour ne pas surcharger les cœurs).
+     * Les textes d'un appel sont calculés sur le thread appelant.
+     */
+    static EmbeddingModel allMiniLmL6V2(int intraOpThreads) {
+        try (InputStream model = resource("all-minilm-l6-v2.onnx");
+             InputStream tokenizer = resource("all-minilm-l6-v2-tokenizer.json");
+             OrtSession.SessionOptions options = new OrtSession.SessionOptions()) {
+            options.setIntraOpNumThreads(intraOpThreads);
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            OrtEnvironment environment = OrtEnvironment.getEnvironment();
+            OrtSession session = environment.createSession(model.readAllBytes(), options);
+            return new InProcessModel(new OnnxBertBiEncoder(environment, session, tokenizer, PoolingMode.MEAN));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (OrtException e) {
+            throw new IllegalStateException("Session ONNX impossible à créer", e);
+        }
+    }
+
+    private static InputStream resource(String name) {
+        InputStream in = AllMiniLmL6V2EmbeddingModel.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IllegalStateException("Ressource introuvable : " + name);
+        }
+        return in;
+    }
+
+    private static class InProcessModel extends AbstractInProcessEmbeddingModel {
+
+        private final OnnxBertBiEncoder encoder;
+
+        InProcessModel(OnnxBertBiEncoder encoder) {
+            super(Runnable::run);
+            this.encoder = encoder;
+        }
+
+        @Override
+        protected OnnxBertBiEncoder model() {
+            return encoder;
+        }
+
+        @Override
+        protected Integer knownDimension() {
+            return 384;
+        }
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel delegate;
+        private int threads = Runtime.getRuntime().availableProcessors();
+        private int intraOpThreads = 1;
+        private int batchSize = 16;
+        private Duration maxWait = Duration.ofMillis(2);
+
+        /**
+         * Modèle à utiliser ; par défaut AllMiniLmL6V2 avec {@link #intraOpThreads(int)} threads par inférence.
+         */
+        public Builder delegate(EmbeddingModel delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * Nombre de lots calculés en parallèle.
+         */
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public Builder intraOpThreads(int intraOpThreads) {
+            this.intraOpThreads = intraOpThreads;
+            return this;
+        }
+
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Attente maximale d'autres requêtes avant d'envoyer un lot.
+         */
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public BatchingEmbeddingModel build() {
+            if (threads < 1 || intraOpThreads < 1 || batchSize < 1) {
+                throw new IllegalArgumentException("threads, intraOpThreads et batchSize doivent être positifs");
+            }
+            return new BatchingEmbeddingModel(this);
+        }
+    }
+}
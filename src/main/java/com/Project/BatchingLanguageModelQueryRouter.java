@@ -0,0 +1,226 @@
+package com.Project;
+
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.QueryRouter;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Routage par le LM comme LanguageModelQueryRouter, mais les requêtes qui arrivent en même
+ * temps (plusieurs utilisateurs) sont classées par un seul appel : la première requête ouvre
+ * un lot, attend au plus {@code maxWait} les suivantes (jusqu'à {@code maxBatchSize}), puis
+ * demande au LM une ligne de sources par requête.
+ * <p>
+ * Une requête seule ne paie que {@code maxWait} de plus. Si le LM échoue ou oublie une
+ * requête, route lève une exception (comme LanguageModelQueryRouter avec FallbackStrategy.FAIL)
+ * plutôt que de rendre une décision par défaut : placé derrière {@link CachingQueryRouter},
+ * la requête reçoit les sources de repli sans que cet échec soit mémorisé.
+ */
+public class BatchingLanguageModelQueryRouter implements QueryRouter {
+
+    private static final Pattern ANSWER_LINE = Pattern.compile(
+            "^\\W*(?:requête\\s*)?(\\d+)\\s*[:.)\\-]\\s*(.*)$", Pattern.MULTILINE | Pattern.CASE_INSENSITIVE);
+    private static final Pattern NUMBER = Pattern.compile("\\d+");
+
+    private record Pending(String query, CompletableFuture<Collection<ContentRetriever>> decision) {
+    }
+
+    private final ChatLanguageModel model;
+    private final List<ContentRetriever> retrievers;
+    private final String sources;
+    private final int maxBatchSize;
+    private final long maxWaitNanos;
+
+    // Lot en cours de remplissage, null si aucun
+    private List<Pending> open;
+
+    private final AtomicLong queries = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong unanswered = new AtomicLong();
+
+    private BatchingLanguageModelQueryRouter(Builder builder) {
+        this.model = builder.model;
+        this.retrievers = new ArrayList<>(builder.descriptions.keySet());
+        StringBuilder sources = new StringBuilder();
+        int number = 1;
+        for (String description : builder.descriptions.values()) {
+            sources.append(number++).append(" : ").append(description).append('\n');
+        }
+        this.sources = sources.toString();
+        this.maxBatchSize = builder.maxBatchSize;
+        this.maxWaitNanos = builder.maxWait.toNanos();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        queries.incrementAndGet();
+        Pending mine = new Pending(query.text(), new CompletableFuture<>());
+        List<Pending> batch;
+        boolean leader;
+        synchronized (this) {
+            leader = open == null;
+            if (leader) {
+                open = new ArrayList<>(maxBatchSize);
+            }
+            batch = open;
+            batch.add(mine);
+            if (batch.size() >= maxBatchSize) {
+                open = null;
+                notifyAll();
+            }
+        }
+        if (leader) {
+            awaitBatch(batch);
+            classify(batch);
+        }
+        try {
+            return mine.decision().join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof Error error) {
+                throw error;
+            }
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // ============ FORMATION DU LOT ============
+
+    private synchronized void awaitBatch(List<Pending> batch) {
+        long deadline = System.nanoTime() + maxWaitNanos;
+        long remaining;
+        while (open == batch && (remaining = deadline - System.nanoTime()) > 0) {
+            try {
+                wait(remaining / 1_000_000, (int) (remaining % 1_000_000));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        if (open == batch) {
+            open = null;
+        }
+    }
+
+    // ============ CLASSEMENT PAR LE LM ============
+
+    private void classify(List<Pending> batch) {
+        batches.incrementAndGet();
+        Map<Integer, Collection<ContentRetriever>> decisions = new HashMap<>();
+        Throwable failure = null;
+        try {
+            decisions = parse(model.generate(prompt(batch)));
+        } catch (Throwable e) {
+            // Error compris : chaque requête du lot doit recevoir une issue, sinon ses appelants restent bloqués
+            failure = e;
+        }
+        for (int i = 0; i < batch.size(); i++) {
+            Collection<ContentRetriever> decision = decisions.get(i + 1);
+            if (decision != null) {
+                batch.get(i).decision().complete(decision);
+                continue;
+            }
+            // Décision manquante (appel en échec ou réponse illisible) : l'appelant choisit le repli
+            unanswered.incrementAndGet();
+            batch.get(i).decision().completeExceptionally(failure != null ? failure
+                    : new IllegalStateException("Pas de décision de routage du LM pour : " + batch.get(i).query()));
+        }
+    }
+
+    private String prompt(List<Pending> batch) {
+        StringBuilder prompt = new StringBuilder()
+                .append("Sources d'information disponibles :\n")
+                .append(sources)
+                .append("\nPour chaque requête ci-dessous, indique les numéros des sources les plus susceptibles ")
+                .append("d'y répondre. Réponds uniquement par une ligne par requête, au format ")
+                .append("« numéro de requête : numéros des sources séparés par des virgules », ")
+                .append("ou « numéro de requête : aucune » si aucune source ne convient.\n\nRequêtes :\n");
+        for (int i = 0; i < batch.size(); i++) {
+            prompt.append(i + 1).append(". ").append(batch.get(i).query().replace('\n', ' ')).append('\n');
+        }
+        return prompt.toString();
+    }
+
+    private Map<Integer, Collection<ContentRetriever>> parse(String answer) {
+        Map<Integer, Collection<ContentRetriever>> decisions = new HashMap<>();
+        Matcher line = ANSWER_LINE.matcher(answer);
+        while (line.find()) {
+            List<ContentRetriever> selected = new ArrayList<>();
+            Matcher number = NUMBER.matcher(line.group(2));
+            while (number.find()) {
+                int source = Integer.parseInt(number.group());
+                if (source >= 1 && source <= retrievers.size() && !selected.contains(retrievers.get(source - 1))) {
+                    selected.add(retrievers.get(source - 1));
+                }
+            }
+            decisions.putIfAbsent(Integer.parseInt(line.group(1)), selected);
+        }
+        return decisions;
+    }
+
+    public String stats() {
+        long sent = batches.get();
+        return String.format("Routage LM par lots : %d requêtes en %d appels (%.1f par appel), %d sans décision",
+                queries.get(), sent, sent == 0 ? 0.0 : (double) queries.get() / sent, unanswered.get());
+    }
+
+    public static class Builder {
+
+        private ChatLanguageModel model;
+        private final Map<ContentRetriever, String> descriptions = new LinkedHashMap<>();
+        private int maxBatchSize = 8;
+        private Duration maxWait = Duration.ofMillis(30);
+
+        public Builder model(ChatLanguageModel model) {
+            this.model = model;
+            return this;
+        }
+
+        /**
+         * Mêmes descriptions que pour LanguageModelQueryRouter.
+         */
+        public Builder descriptions(Map<ContentRetriever, String> descriptions) {
+            this.descriptions.putAll(descriptions);
+            return this;
+        }
+
+        public Builder maxBatchSize(int maxBatchSize) {
+            this.maxBatchSize = maxBatchSize;
+            return this;
+        }
+
+        /**
+         * Attente maximale de la première requête d'un lot.
+         */
+        public Builder maxWait(Duration maxWait) {
+            this.maxWait = maxWait;
+            return this;
+        }
+
+        public BatchingLanguageModelQueryRouter build() {
+            if (model == null || descriptions.isEmpty()) {
+                throw new IllegalArgumentException("model et descriptions sont obligatoires");
+            }
+            if (maxBatchSize < 1) {
+                throw new IllegalArgumentException("maxBatchSize doit être positif");
+            }
+            return new BatchingLanguageModelQueryRouter(this);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.Project;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache borné en taille, avec éviction LRU et durée de vie (TTL), et compteurs hits / misses.
+ * Partagé par les différents caches de l'application.
+ */
+public class BoundedCache<K, V> {
+
+    private record Entry<V>(V value, long expiresAt) {
+    }
+
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public BoundedCache(int maxSize, Duration ttl) {
+        this.ttlNanos = ttl.toNanos();
+        // ordre d'accès : l'entrée la moins récemment utilisée est en tête
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry<V>> eldest) {
+                if (size() > maxSize) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Valeur associée à la clé, ou null si absente ou expirée.
+     */
+    public synchronized V get(K key) {
+        Entry<V> entry = entries.get(key);
+        if (entry == null || isExpired(entry)) {
+            if (entry != null) {
+                entries.remove(key);
+            }
+            misses.incrementAndGet();
+            return null;
+        }
+        hits.incrementAndGet();
+        return entry.value();
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Entry<>(value, System.nanoTime() + ttlNanos));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    /**
+     * Copie des entrées encore valides, sans modifier l'ordre LRU (pour les recherches par similarité).
+     */
+    public synchronized List<Map.Entry<K, V>> snapshot() {
+        List<Map.Entry<K, V>> valid = new ArrayList<>(entries.size());
+        entries.values().removeIf(this::isExpired);
+        for (Map.Entry<K, Entry<V>> entry : entries.entrySet()) {
+            valid.add(Map.entry(entry.getKey(), entry.getValue().value()));
+        }
+        return valid;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    public double hitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : hits.get() / (double) total;
+    }
+
+    private boolean isExpired(Entry<V> entry) {
+        return System.nanoTime() - entry.expiresAt() > 0;
+    }
+}
@@ -0,0 +1,64 @@
+package com.Project;
+
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.memory.chat.ChatMemoryProvider;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stockage des conversations par session, borné : au-delà de {@code maxSessions} la session
+ * la moins récemment utilisée est oubliée, et une session inactive expire après {@code idleTimeout}.
+ * <p>
+ * Les objets ChatMemory du fournisseur ne contiennent que l'identifiant : les messages vivent ici
+ * et sont libérés à l'éviction, à condition que l'appelant ne garde pas ces objets (AiServices le
+ * fait avec @MemoryId, voir {@link AssistantServer#createAssistant}).
+ */
+public class BoundedChatMemoryStore implements ChatMemoryStore {
+
+    private final BoundedCache<Object, List<ChatMessage>> sessions;
+
+    public BoundedChatMemoryStore(int maxSessions, Duration idleTimeout) {
+        this.sessions = new BoundedCache<>(maxSessions, idleTimeout);
+    }
+
+    /**
+     * Fournisseur de mémoires pour AiServices.chatMemoryProvider(...) : fenêtre de
+     * {@code maxMessages} messages par session, rangée dans ce stockage.
+     */
+    public ChatMemoryProvider provider(int maxMessages) {
+        return sessionId -> MessageWindowChatMemory.builder()
+                .id(sessionId)
+                .maxMessages(maxMessages)
+                .chatMemoryStore(this)
+                .build();
+    }
+
+    @Override
+    public List<ChatMessage> getMessages(Object sessionId) {
+        List<ChatMessage> messages = sessions.get(sessionId);
+        return messages == null ? new ArrayList<>() : messages;
+    }
+
+    @Override
+    public void updateMessages(Object sessionId, List<ChatMessage> messages) {
+        // put remet aussi à zéro le délai d'inactivité de la session
+        sessions.put(sessionId, new ArrayList<>(messages));
+    }
+
+    @Override
+    public void deleteMessages(Object sessionId) {
+        sessions.remove(sessionId);
+    }
+
+    public int activeSessions() {
+        return sessions.size();
+    }
+
+    public long evictedSessions() {
+        return sessions.evictions();
+    }
+}
@@ -0,0 +1,98 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Cache des embeddings de requêtes, à partager entre tous les retrievers (et le routeur)
+ * qui utilisent le même modèle : une question routée vers plusieurs sources n'est calculée qu'une fois.
+ * <p>
+ * La clé est le texte normalisé (espaces, casse ; AllMiniLmL6V2 ne distingue pas la casse).
+ * Deux appels simultanés pour la même requête attendent le même calcul.
+ * Seuls les appels unitaires passent par le cache ; les lots de l'ingestion (embedAll) le contournent.
+ */
+public class CachedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final BoundedCache<String, Embedding> cache;
+    private final ConcurrentMap<String, CompletableFuture<Embedding>> inFlight = new ConcurrentHashMap<>();
+    // Un appel qui attend le calcul d'un autre compte comme un hit : il ne paie pas l'embedding
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public CachedEmbeddingModel(EmbeddingModel delegate, int maxSize, Duration ttl) {
+        this.delegate = delegate;
+        this.cache = new BoundedCache<>(maxSize, ttl);
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        String key = SemanticResponseCache.normalize(text);
+        Embedding cached = cache.get(key);
+        if (cached != null) {
+            hits.incrementAndGet();
+            return Response.from(cached);
+        }
+
+        CompletableFuture<Embedding> computation = new CompletableFuture<>();
+        CompletableFuture<Embedding> existing = inFlight.putIfAbsent(key, computation);
+        if (existing != null) {
+            hits.incrementAndGet();
+            return Response.from(existing.join());
+        }
+        misses.incrementAndGet();
+        try {
+            Embedding embedding = delegate.embed(text).content();
+            cache.put(key, embedding);
+            computation.complete(embedding);
+            return Response.from(embedding);
+        } catch (RuntimeException e) {
+            computation.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key);
+        }
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return embed(textSegment.text());
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public double hitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : hits.get() / (double) total;
+    }
+
+    public String stats() {
+        return String.format("Cache d'embeddings de requêtes : %d hits, %d misses (%.0f %%), %d entrées, %d évictions",
+                hits.get(), misses.get(), 100 * hitRate(), cache.size(), cache.evictions());
+    }
+}
@@ -0,0 +1,129 @@
+package com.Project;
+
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.QueryRouter;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Décorateur de QueryRouter qui mémorise les décisions de routage, comme
+ * {@link SemanticResponseCache} pour les réponses : une requête identique (à la casse, aux
+ * espaces et à la ponctuation finale près) ou très proche (similarité cosinus au-dessus du
+ * seuil) d'une requête déjà routée reprend la même décision, sans appel au routeur décoré.
+ * <p>
+ * Prévu devant un routeur coûteux (LanguageModelQueryRouter, routeur « oui / non ») ; les
+ * décisions expirent après {@code ttl} et les moins récemment utilisées sont évincées.
+ * Sans modèle d'embeddings, seules les requêtes identiques sont reconnues.
+ * <p>
+ * Seules les vraies décisions sont mémorisées : le routeur décoré doit signaler un échec par une
+ * exception (LanguageModelQueryRouter avec FallbackStrategy.FAIL, {@link BatchingLanguageModelQueryRouter}),
+ * et non par une décision par défaut. La requête reçoit alors les sources {@code fallback}, sans
+ * que ce choix soit mémorisé : la même requête retentera le routeur décoré.
+ */
+public class CachingQueryRouter implements QueryRouter {
+
+    private record Decision(float[] vector, Collection<ContentRetriever> retrievers) {
+    }
+
+    private final QueryRouter delegate;
+    private final EmbeddingModel embeddingModel;
+    private final double minSimilarity;
+    private final Collection<ContentRetriever> fallback;
+    private final BoundedCache<String, Decision> decisions;
+    private final AtomicLong exactHits = new AtomicLong();
+    private final AtomicLong similarHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    /**
+     * Sans sources de repli : un échec du routeur décoré remonte à l'appelant.
+     */
+    public CachingQueryRouter(QueryRouter delegate, EmbeddingModel embeddingModel,
+                              double minSimilarity, int maxSize, Duration ttl) {
+        this(delegate, embeddingModel, minSimilarity, maxSize, ttl, null);
+    }
+
+    /**
+     * @param fallback sources d'une requête dont le routage a échoué (non mémorisées)
+     */
+    public CachingQueryRouter(QueryRouter delegate, EmbeddingModel embeddingModel,
+                              double minSimilarity, int maxSize, Duration ttl,
+                              Collection<ContentRetriever> fallback) {
+        this.delegate = delegate;
+        this.embeddingModel = embeddingModel;
+        this.minSimilarity = minSimilarity;
+        this.fallback = fallback == null ? null : List.copyOf(fallback);
+        this.decisions = new BoundedCache<>(maxSize, ttl);
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        String key = normalize(query.text());
+
+        // 1. Même requête : pas besoin d'embedding
+        Decision exact = decisions.get(key);
+        if (exact != null) {
+            exactHits.incrementAndGet();
+            return exact.retrievers();
+        }
+
+        // 2. Requête voisine d'une requête déjà routée
+        float[] vector = null;
+        if (embeddingModel != null) {
+            vector = VectorMath.normalize(embeddingModel.embed(query.text()).content().vector());
+            String closestKey = null;
+            float closest = (float) minSimilarity;
+            for (Map.Entry<String, Decision> entry : decisions.snapshot()) {
+                float similarity = VectorMath.dot(entry.getValue().vector(), 0, vector, vector.length);
+                if (similarity >= closest) {
+                    closest = similarity;
+                    closestKey = entry.getKey();
+                }
+            }
+            if (closestKey != null) {
+                Decision similar = decisions.get(closestKey);   // rafraîchit l'ordre LRU
+                if (similar != null) {
+                    similarHits.incrementAndGet();
+                    return similar.retrievers();
+                }
+            }
+        }
+
+        // 3. Décision du routeur décoré, mémorisée ; un échec n'est pas une décision
+        misses.incrementAndGet();
+        Collection<ContentRetriever> retrievers;
+        try {
+            retrievers = List.copyOf(delegate.route(query));
+        } catch (RuntimeException e) {
+            failures.incrementAndGet();
+            if (fallback == null) {
+                throw e;
+            }
+            return fallback;
+        }
+        decisions.put(key, new Decision(vector == null ? new float[0] : vector, retrievers));
+        return retrievers;
+    }
+
+    public double hitRate() {
+        long hits = exactHits.get() + similarHits.get();
+        long total = hits + misses.get();
+        return total == 0 ? 0 : hits / (double) total;
+    }
+
+    public String stats() {
+        return String.format("Cache de routage : %d identiques, %d voisines, %d routées (%.0f %% évitées, %d échecs non mémorisés), %d entrées, %d évictions",
+                exactHits.get(), similarHits.get(), misses.get(), 100 * hitRate(), failures.get(),
+                decisions.size(), decisions.evictions());
+    }
+
+    static String normalize(String text) {
+        return SemanticResponseCache.normalize(text).replaceAll("[\\s?!.]+$", "");
+    }
+}
@@ -0,0 +1,252 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.aggregator.DefaultContentAggregator;
+import dev.langchain4j.rag.query.Query;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Agrégation des contenus retrouvés qui réduit le contexte envoyé au LM, sans appel au LM :
+ * <p>
+ * 1. fusion des sources par {@link DefaultContentAggregator} (Reciprocal Rank Fusion) ;
+ * 2. les contenus sont découpés en phrases (ou puces), toutes calculées en un seul embedAll ;
+ * 3. un contenu trop proche d'un contenu déjà gardé (cosinus des moyennes de ses phrases
+ *    &gt;= {@code duplicateThreshold}) est écarté ;
+ * 4. chaque contenu ne garde que ses {@code maxSentences} phrases les plus proches de la
+ *    question, dans leur ordre d'origine ;
+ * 5. les contenus s'ajoutent dans l'ordre de la fusion tant que {@code maxContextTokens}
+ *    (4 caractères par token) n'est pas atteint.
+ */
+public class CompressingContentAggregator implements ContentAggregator {
+
+    // Fin de phrase, paragraphe ou puce (les puces des polices de symboles tombent dans la zone privée Unicode)
+    private static final Pattern SENTENCE_END = Pattern.compile("(?<=[.!?;])\\s+|\\n\\s*\\n|\\s*[•▪◦●\\p{Co}]\\s*");
+    private static final int MIN_SENTENCE_LENGTH = 20;
+
+    private final ContentAggregator fusion;
+    private final EmbeddingModel embeddingModel;
+    private final double duplicateThreshold;
+    private final int maxSentences;
+    private final int maxContextTokens;
+
+    private final AtomicLong aggregations = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong tokensIn = new AtomicLong();
+    private final AtomicLong tokensOut = new AtomicLong();
+
+    private CompressingContentAggregator(Builder builder) {
+        this.fusion = builder.fusion;
+        this.embeddingModel = builder.embeddingModel;
+        this.duplicateThreshold = builder.duplicateThreshold;
+        this.maxSentences = builder.maxSentences;
+        this.maxContextTokens = builder.maxContextTokens;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+        List<Content> fused = fusion.aggregate(queryToContents);
+        if (fused.isEmpty()) {
+            return fused;
+        }
+        aggregations.incrementAndGet();
+
+        // ============ EMBEDDINGS DES QUESTIONS ET DES PHRASES ============
+        List<float[]> queries = new ArrayList<>();
+        for (Query query : queryToContents.keySet()) {
+            queries.add(VectorMath.normalize(embeddingModel.embed(query.text()).content().vector()));
+        }
+        List<List<String>> sentencesPerContent = new ArrayList<>(fused.size());
+        List<TextSegment> allSentences = new ArrayList<>();
+        for (Content content : fused) {
+            List<String> sentences = sentences(content.textSegment().text());
+            sentencesPerContent.add(sentences);
+            sentences.forEach(sentence -> allSentences.add(TextSegment.from(sentence)));
+            tokensIn.addAndGet(TokenBudgetChatMemory.estimateTokens(content.textSegment().text()));
+        }
+        List<Embedding> sentenceEmbeddings = embeddingModel.embedAll(allSentences).content();
+
+        // ============ DÉDOUBLONNAGE, ÉLAGAGE ET BUDGET ============
+        List<Content> kept = new ArrayList<>();
+        List<float[]> keptVectors = new ArrayList<>();
+        int usedTokens = 0;
+        int next = 0;
+        for (int c = 0; c < fused.size(); c++) {
+            List<String> sentences = sentencesPerContent.get(c);
+            float[][] vectors = new float[sentences.size()][];
+            for (int s = 0; s < vectors.length; s++) {
+                vectors[s] = VectorMath.normalize(sentenceEmbeddings.get(next++).vector());
+            }
+            if (vectors.length == 0) {
+                continue;
+            }
+
+            float[] centroid = centroid(vectors);
+            if (isDuplicate(centroid, keptVectors)) {
+                duplicates.incrementAndGet();
+                continue;
+            }
+
+            String trimmed = mostRelevant(sentences, vectors, queries);
+            int tokens = TokenBudgetChatMemory.estimateTokens(trimmed);
+            if (usedTokens + tokens > maxContextTokens) {
+                if (!kept.isEmpty()) {
+                    break;
+                }
+                // Le premier contenu passe toujours, coupé au budget
+                trimmed = trimmed.substring(0, Math.min(trimmed.length(), maxContextTokens * 4));
+                tokens = TokenBudgetChatMemory.estimateTokens(trimmed);
+            }
+            usedTokens += tokens;
+            keptVectors.add(centroid);
+            Content original = fused.get(c);
+            kept.add(Content.from(TextSegment.from(trimmed, original.textSegment().metadata()), original.metadata()));
+        }
+        tokensOut.addAndGet(usedTokens);
+        return kept;
+    }
+
+    private boolean isDuplicate(float[] vector, List<float[]> keptVectors) {
+        for (float[] kept : keptVectors) {
+            if (VectorMath.dot(kept, 0, vector, vector.length) >= duplicateThreshold) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    // Les maxSentences phrases les plus proches d'une des questions, dans l'ordre du texte
+    private String mostRelevant(List<String> sentences, float[][] vectors, List<float[]> queries) {
+        if (sentences.size() <= maxSentences) {
+            return String.join(" ", sentences);
+        }
+        float[] scores = new float[sentences.size()];
+        for (int s = 0; s < scores.length; s++) {
+            float best = -1;
+            for (float[] query : queries) {
+                best = Math.max(best, VectorMath.dot(vectors[s], 0, query, query.length));
+            }
+            scores[s] = best;
+        }
+        Integer[] order = new Integer[scores.length];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+        Integer[] selected = Arrays.copyOf(order, maxSentences);
+        Arrays.sort(selected);
+
+        StringBuilder text = new StringBuilder();
+        for (int s : selected) {
+            if (!text.isEmpty()) {
+                text.append(' ');
+            }
+            text.append(sentences.get(s));
+        }
+        return text.toString();
+    }
+
+    private static float[] centroid(float[][] vectors) {
+        float[] sum = new float[vectors[0].length];
+        for (float[] vector : vectors) {
+            for (int i = 0; i < sum.length; i++) {
+                sum[i] += vector[i];
+            }
+        }
+        return VectorMath.normalize(sum);
+    }
+
+    // Phrases du texte ; un fragment trop court (titre, numéro) est rattaché à la phrase précédente
+    static List<String> sentences(String text) {
+        List<String> sentences = new ArrayList<>();
+        for (String part : SENTENCE_END.split(text.strip())) {
+            String sentence = part.strip().replaceAll("\\s+", " ");
+            if (sentence.isEmpty()) {
+                continue;
+            }
+            if (!sentences.isEmpty() && sentence.length() < MIN_SENTENCE_LENGTH) {
+                int last = sentences.size() - 1;
+                sentences.set(last, sentences.get(last) + " " + sentence);
+            } else {
+                sentences.add(sentence);
+            }
+        }
+        return sentences;
+    }
+
+    public String stats() {
+        long in = tokensIn.get();
+        return String.format("Contexte : %d agrégations, %d doublons écartés, %d tokens envoyés sur %d retrouvés (%.0f %% en moins)",
+                aggregations.get(), duplicates.get(), tokensOut.get(), in,
+                in == 0 ? 0.0 : 100.0 * (in - tokensOut.get()) / in);
+    }
+
+    public static class Builder {
+
+        private ContentAggregator fusion = new DefaultContentAggregator();
+        private EmbeddingModel embeddingModel;
+        private double duplicateThreshold = 0.92;
+        private int maxSentences = 4;
+        private int maxContextTokens = 600;
+
+        /**
+         * Fusion des listes de contenus avant compression ; par défaut DefaultContentAggregator.
+         */
+        public Builder fusion(ContentAggregator fusion) {
+            this.fusion = fusion;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Cosinus au-delà duquel deux contenus sont considérés comme des doublons.
+         */
+        public Builder duplicateThreshold(double duplicateThreshold) {
+            this.duplicateThreshold = duplicateThreshold;
+            return this;
+        }
+
+        /**
+         * Phrases gardées par contenu.
+         */
+        public Builder maxSentences(int maxSentences) {
+            this.maxSentences = maxSentences;
+            return this;
+        }
+
+        /**
+         * Budget total du contexte, en tokens estimés.
+         */
+        public Builder maxContextTokens(int maxContextTokens) {
+            this.maxContextTokens = maxContextTokens;
+            return this;
+        }
+
+        public CompressingContentAggregator build() {
+            if (embeddingModel == null) {
+                throw new IllegalArgumentException("embeddingModel est obligatoire");
+            }
+            if (maxSentences < 1 || maxContextTokens < 1) {
+                throw new IllegalArgumentException("maxSentences et maxContextTokens doivent être positifs");
+            }
+            return new CompressingContentAggregator(this);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.Project;
+
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * ContentRetriever avec échéance : la source est interrogée sur un thread virtuel et,
+ * si elle n'a pas répondu à temps (ou échoue), la requête continue sans elle.
+ * <p>
+ * Combiné à DefaultRetrievalAugmentor.builder().executor(...), toutes les sources routées
+ * sont interrogées en parallèle et la réponse part avec ce qui est arrivé dans les délais,
+ * en général le document local quand la recherche Web est lente.
+ */
+public class DeadlineContentRetriever implements ContentRetriever {
+
+    private static final ExecutorService VIRTUAL_THREADS = Executors.newVirtualThreadPerTaskExecutor();
+
+    private final String name;
+    private final ContentRetriever delegate;
+    private final Duration deadline;
+
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public DeadlineContentRetriever(String name, ContentRetriever delegate, Duration deadline) {
+        this.name = name;
+        this.delegate = delegate;
+        this.deadline = deadline;
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        calls.incrementAndGet();
+        Future<List<Content>> future = VIRTUAL_THREADS.submit(() -> delegate.retrieve(query));
+        try {
+            return future.get(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            future.cancel(true);
+            timeouts.incrementAndGet();
+            System.out.println(" Source '" + name + "' ignorée : pas de réponse en " + deadline.toMillis() + " ms");
+            return Collections.emptyList();
+        } catch (ExecutionException e) {
+            failures.incrementAndGet();
+            System.out.println(" Source '" + name + "' ignorée : " + e.getCause());
+            return Collections.emptyList();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            return Collections.emptyList();
+        }
+    }
+
+    public long timeouts() {
+        return timeouts.get();
+    }
+
+    public String stats() {
+        return String.format("Source '%s' : %d appels, %d hors délai, %d en erreur",
+                name, calls.get(), timeouts.get(), failures.get());
+    }
+}
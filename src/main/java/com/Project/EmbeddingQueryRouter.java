@@ -0,0 +1,190 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.QueryRouter;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Routeur de requêtes sans appel au LM : l'embedding de la requête est comparé à un vecteur
+ * de référence par route (embedding de la description, ou centroïde des segments du document).
+ * <p>
+ * La décision est prise localement quand le meilleur score dépasse {@code minScore} avec une
+ * avance d'au moins {@code minMargin} sur le second ; sinon la requête est ambiguë et part au
+ * routeur de secours (par exemple LanguageModelQueryRouter). Les compteurs indiquent combien
+ * de fois ce secours a servi.
+ */
+public class EmbeddingQueryRouter implements QueryRouter {
+
+    private record Route(Collection<ContentRetriever> retrievers, float[] reference) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final List<Route> routes;
+    private final QueryRouter fallback;
+    private final double minScore;
+    private final double minMargin;
+
+    private final AtomicLong localDecisions = new AtomicLong();
+    private final AtomicLong fallbackDecisions = new AtomicLong();
+
+    private EmbeddingQueryRouter(Builder builder) {
+        this.embeddingModel = builder.embeddingModel;
+        this.fallback = builder.fallback;
+        this.minScore = builder.minScore;
+        this.minMargin = builder.minMargin;
+
+        // Les descriptions sont calculées en un seul appel, une fois pour toutes
+        List<String> texts = new ArrayList<>(builder.descriptions.values());
+        List<TextSegment> segments = texts.stream().map(TextSegment::from).toList();
+        List<Embedding> embeddings = segments.isEmpty() ? List.of() : embeddingModel.embedAll(segments).content();
+
+        this.routes = new ArrayList<>();
+        int i = 0;
+        for (Collection<ContentRetriever> retrievers : builder.descriptions.keySet()) {
+            routes.add(new Route(retrievers, VectorMath.normalize(embeddings.get(i++).vector())));
+        }
+        builder.centroids.forEach((retrievers, centroid) -> routes.add(new Route(retrievers, centroid)));
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        float[] vector = VectorMath.normalize(embeddingModel.embed(query.text()).content().vector());
+
+        Route best = null;
+        float bestScore = Float.NEGATIVE_INFINITY;
+        float secondScore = Float.NEGATIVE_INFINITY;
+        for (Route route : routes) {
+            float score = VectorMath.dot(route.reference(), 0, vector, vector.length);
+            if (score > bestScore) {
+                secondScore = bestScore;
+                bestScore = score;
+                best = route;
+            } else if (score > secondScore) {
+                secondScore = score;
+            }
+        }
+
+        boolean confident = best != null && bestScore >= minScore && bestScore - secondScore >= minMargin;
+        if (confident || fallback == null) {
+            localDecisions.incrementAndGet();
+            return best == null ? Collections.emptyList() : best.retrievers();
+        }
+        fallbackDecisions.incrementAndGet();
+        return fallback.route(query);
+    }
+
+    public long localDecisions() {
+        return localDecisions.get();
+    }
+
+    public long fallbackDecisions() {
+        return fallbackDecisions.get();
+    }
+
+    public double fallbackRate() {
+        long total = localDecisions.get() + fallbackDecisions.get();
+        return total == 0 ? 0 : fallbackDecisions.get() / (double) total;
+    }
+
+    public String stats() {
+        return String.format("Routage local : %d décisions locales, %d envoyées au LM (%.0f %%)",
+                localDecisions.get(), fallbackDecisions.get(), 100 * fallbackRate());
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel embeddingModel;
+        private final Map<Collection<ContentRetriever>, String> descriptions = new LinkedHashMap<>();
+        private final Map<Collection<ContentRetriever>, float[]> centroids = new LinkedHashMap<>();
+        private QueryRouter fallback;
+        private double minScore = 0.3;
+        private double minMargin = 0.05;
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        /**
+         * Mêmes descriptions que pour LanguageModelQueryRouter.
+         */
+        public Builder descriptions(Map<ContentRetriever, String> descriptions) {
+            descriptions.forEach(this::description);
+            return this;
+        }
+
+        public Builder description(ContentRetriever retriever, String description) {
+            descriptions.put(List.of(retriever), description);
+            return this;
+        }
+
+        /**
+         * Route « pas de RAG » : les requêtes proches de cette description ne récupèrent rien.
+         */
+        public Builder noRetrievalDescription(String description) {
+            descriptions.put(List.of(), description);
+            return this;
+        }
+
+        /**
+         * Utilise comme référence le centroïde des embeddings d'un document.
+         */
+        public Builder centroid(ContentRetriever retriever, List<Embedding> documentEmbeddings) {
+            float[] sum = new float[documentEmbeddings.get(0).dimension()];
+            for (Embedding embedding : documentEmbeddings) {
+                float[] vector = VectorMath.normalize(embedding.vector());
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += vector[i];
+                }
+            }
+            centroids.put(List.of(retriever), VectorMath.normalize(sum));
+            return this;
+        }
+
+        /**
+         * Routeur utilisé pour les requêtes ambiguës ; sans lui la meilleure route est toujours prise.
+         */
+        public Builder fallback(QueryRouter fallback) {
+            this.fallback = fallback;
+            return this;
+        }
+
+        /**
+         * Similarité cosinus minimale avec la meilleure route.
+         */
+        public Builder minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        /**
+         * Écart minimal entre la meilleure et la deuxième route.
+         */
+        public Builder minMargin(double minMargin) {
+            this.minMargin = minMargin;
+            return this;
+        }
+
+        public EmbeddingQueryRouter build() {
+            if (embeddingModel == null) {
+                throw new IllegalArgumentException("embeddingModel est obligatoire");
+            }
+            return new EmbeddingQueryRouter(this);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.Project;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Choix du magasin d'embeddings des programmes, avec -Drag.index=... :
+ * - exact (par défaut) : {@link VectorEmbeddingStore}, parcours exact ;
+ * - hnsw : {@link HnswEmbeddingStore}, index approché réglé par -Drag.hnsw.m,
+ *   -Drag.hnsw.efConstruction et -Drag.hnsw.efSearch ;
+ * - int8 / binary : {@link QuantizedEmbeddingStore}, codes quantifiés en mémoire et vecteurs
+ *   complets dans un fichier temporaire, -Drag.quantized.rescore candidats recalculés par résultat ;
+ * - sharded : {@link ShardedEmbeddingStore}, -Drag.shards magasins (un par cœur par défaut) du
+ *   type -Drag.shard.index (exact par défaut), interrogés en parallèle.
+ */
+public final class EmbeddingStores {
+
+    private EmbeddingStores() {
+    }
+
+    public static EmbeddingStore<TextSegment> create() {
+        return create(System.getProperty("rag.index", "exact"));
+    }
+
+    private static EmbeddingStore<TextSegment> create(String index) {
+        switch (index) {
+            case "exact":
+                return new VectorEmbeddingStore();
+            case "hnsw":
+                return new HnswEmbeddingStore(
+                        Integer.getInteger("rag.hnsw.m", 16),
+                        Integer.getInteger("rag.hnsw.efConstruction", 200),
+                        Integer.getInteger("rag.hnsw.efSearch", 64));
+            case "int8":
+                return quantized(QuantizedEmbeddingStore.Quantization.INT8);
+            case "binary":
+                return quantized(QuantizedEmbeddingStore.Quantization.BINARY);
+            case "sharded":
+                String shardIndex = System.getProperty("rag.shard.index", "exact");
+                if (shardIndex.equals("sharded")) {
+                    throw new IllegalArgumentException("Un shard ne peut pas être lui-même réparti");
+                }
+                return ShardedEmbeddingStore.builder()
+                        .shards(Integer.getInteger("rag.shards", Runtime.getRuntime().availableProcessors()))
+                        .shardFactory(() -> create(shardIndex))
+                        .build();
+            default:
+                throw new IllegalArgumentException("Index inconnu : " + index + " (exact, hnsw, int8, binary ou sharded)");
+        }
+    }
+
+    private static EmbeddingStore<TextSegment> quantized(QuantizedEmbeddingStore.Quantization quantization) {
+        try {
+            return new QuantizedEmbeddingStore(quantization,
+                    Integer.getInteger("rag.quantized.rescore", quantization.defaultRescoreFactor()));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Crée le magasin et y range les segments d'un document ingéré.
+     */
+    public static EmbeddingStore<TextSegment> of(PersistentEmbeddingIndex.Contents contents) {
+        EmbeddingStore<TextSegment> embeddingStore = create();
+        embeddingStore.addAll(contents.embeddings(), contents.segments());
+        return embeddingStore;
+    }
+}
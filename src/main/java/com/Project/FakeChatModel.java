@@ -0,0 +1,41 @@
+package com.Project;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * ChatLanguageModel local pour les tests de charge : répond après une latence fixe,
+ * sans réseau ni clé d'API, ce qui isole le coût propre du serveur et de la recherche.
+ */
+public class FakeChatModel implements ChatLanguageModel {
+
+    private final Duration latency;
+    private final String answer;
+
+    public FakeChatModel(Duration latency) {
+        this(latency, "Réponse simulée.");
+    }
+
+    public FakeChatModel(Duration latency, String answer) {
+        this.latency = latency;
+        this.answer = answer;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        try {
+            Thread.sleep(latency.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Génération interrompue", e);
+        }
+        int inputTokens = messages.stream().mapToInt(message -> message.toString().length() / 4).sum();
+        return Response.from(AiMessage.from(answer), new TokenUsage(inputTokens, answer.length() / 4));
+    }
+}
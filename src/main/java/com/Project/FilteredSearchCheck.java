@@ -0,0 +1,266 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Vérification des recherches filtrées par l'index des métadonnées ({@link MetadataBitmapIndex}) :
+ * pour chaque filtre (égalité, intervalle, in, not in, And, Or, Not, clé non indexée), le résultat
+ * de chaque magasin est comparé au parcours exact suivi du filtre, puis de nouveau après des
+ * suppressions (par identifiant et par filtre) et des remplacements, qui déplacent les positions.
+ * <p>
+ * - {@link VectorEmbeddingStore} et {@link QuantizedEmbeddingStore} (tous les candidats recalculés) :
+ * résultats identiques ;
+ * - {@link HnswEmbeddingStore} : uniquement des segments autorisés, autant que le parcours exact,
+ * et un rappel d'au moins {@value #MIN_HNSW_RECALL}.
+ * <p>
+ * Les opérations de {@link RoaringBitmap} sont d'abord comparées à un TreeSet.
+ * Arguments : [nombre de vecteurs], par défaut 3000. Code de sortie 1 au premier écart.
+ */
+public class FilteredSearchCheck {
+
+    private static final int DIMENSION = 16;
+    private static final int K = 10;
+    private static final int QUERIES_PER_FILTER = 10;
+    private static final double MIN_HNSW_RECALL = 0.9;
+
+    private record Entry(float[] vector, TextSegment segment) {
+    }
+
+    private static final List<Filter> FILTERS = List.of(
+            metadataKey("file_name").isEqualTo("doc-1.pdf"),
+            metadataKey("page").isGreaterThan(30),
+            metadataKey("page").isBetween(5, 9),
+            metadataKey("ingested_at").isGreaterThanOrEqualTo(1005L),
+            metadataKey("section").isNotEqualTo("s2"),
+            metadataKey("section").isIn("s1", "s3"),
+            metadataKey("section").isNotIn("s1", "s3"),
+            metadataKey("file_name").isEqualTo("doc-1.pdf").and(metadataKey("page").isLessThan(10)),
+            metadataKey("file_name").isEqualTo("doc-1.pdf").and(metadataKey("author").isEqualTo("a2")),
+            metadataKey("file_name").isEqualTo("doc-1.pdf").or(metadataKey("page").isLessThan(3)),
+            metadataKey("file_name").isEqualTo("doc-1.pdf").or(metadataKey("author").isEqualTo("a3")),
+            Filter.not(metadataKey("file_name").isIn("doc-0.pdf", "doc-2.pdf")),
+            Filter.not(metadataKey("author").isEqualTo("a1")),
+            metadataKey("author").isEqualTo("a4"));
+
+    public static void main(String[] args) throws Exception {
+        int corpusSize = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+
+        // ============ ENSEMBLES ============
+        checkBitmaps(new Random(1));
+        System.out.println(" RoaringBitmap : and, or, andNot, add, remove conformes à TreeSet");
+
+        // ============ MAGASINS ============
+        try (QuantizedEmbeddingStore quantized =
+                     new QuantizedEmbeddingStore(QuantizedEmbeddingStore.Quantization.INT8, corpusSize)) {
+            checkStore("VectorEmbeddingStore", new VectorEmbeddingStore(), true, corpusSize);
+            checkStore("QuantizedEmbeddingStore", quantized, true, corpusSize);
+            checkStore("HnswEmbeddingStore", new HnswEmbeddingStore(16, 100, 32), false, corpusSize);
+        }
+        System.out.println(" Recherches filtrées conformes");
+    }
+
+    private static void checkStore(String name, ReplaceableEmbeddingStore store, boolean exact, int corpusSize) {
+        Random random = new Random(7);
+        Map<String, Entry> live = new LinkedHashMap<>();
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (int i = 0; i < corpusSize; i++) {
+            ids.add("segment-" + i);
+            embeddings.add(randomEmbedding(random));
+            segments.add(randomSegment(random, i));
+        }
+        store.addAll(ids, embeddings, segments);
+        for (int i = 0; i < corpusSize; i++) {
+            live.put(ids.get(i), new Entry(VectorMath.normalize(embeddings.get(i).vector()), segments.get(i)));
+        }
+
+        double recallSum = 0;
+        int searches = 0;
+        for (int round = 0; round < 3; round++) {
+            for (Filter filter : FILTERS) {
+                for (int q = 0; q < QUERIES_PER_FILTER; q++) {
+                    Embedding query = randomEmbedding(random);
+                    List<String> expected = exactSearch(live, query, filter);
+                    List<EmbeddingMatch<TextSegment>> matches = store.search(EmbeddingSearchRequest.builder()
+                            .queryEmbedding(query)
+                            .maxResults(K)
+                            .minScore(0.0)
+                            .filter(filter)
+                            .build()).matches();
+                    List<String> found = matches.stream().map(EmbeddingMatch::embeddingId).toList();
+                    if (exact) {
+                        if (!found.equals(expected)) {
+                            fail(name, round, filter, expected + " attendus, " + found + " obtenus");
+                        }
+                        continue;
+                    }
+                    for (String id : found) {
+                        Entry entry = live.get(id);
+                        if (entry == null || !filter.test(entry.segment().metadata())) {
+                            fail(name, round, filter, id + " ne devrait pas être renvoyé");
+                        }
+                    }
+                    if (found.size() != expected.size()) {
+                        fail(name, round, filter, expected.size() + " résultats attendus, " + found.size() + " obtenus");
+                    }
+                    Set<String> relevant = new HashSet<>(expected);
+                    recallSum += expected.isEmpty() ? 1.0
+                            : found.stream().filter(relevant::contains).count() / (double) expected.size();
+                    searches++;
+                }
+            }
+            mutate(store, live, random, round);
+        }
+        if (!exact && recallSum / searches < MIN_HNSW_RECALL) {
+            fail(name, -1, null, String.format("rappel moyen %.3f", recallSum / searches));
+        }
+        System.out.printf(" %-24s %d filtres x %d requêtes x 3 passages%s, %d segments restants%n",
+                name, FILTERS.size(), QUERIES_PER_FILTER,
+                exact ? "" : String.format(" (rappel %.3f)", recallSum / searches), live.size());
+    }
+
+    // Suppressions par identifiant et par filtre, puis remplacement d'une partie des segments
+    private static void mutate(ReplaceableEmbeddingStore store, Map<String, Entry> live, Random random, int round) {
+        List<String> removed = new ArrayList<>();
+        for (String id : live.keySet()) {
+            if (random.nextInt(8) == 0) {
+                removed.add(id);
+            }
+        }
+        store.removeAll(removed);
+        removed.forEach(live::remove);
+
+        Filter page = metadataKey("page").isEqualTo(7 + round);
+        store.removeAll(page);
+        live.values().removeIf(entry -> page.test(entry.segment().metadata()));
+
+        List<String> oldIds = new ArrayList<>();
+        List<String> ids = new ArrayList<>();
+        List<Embedding> embeddings = new ArrayList<>();
+        List<TextSegment> segments = new ArrayList<>();
+        for (String id : live.keySet()) {
+            if (random.nextInt(10) == 0) {
+                oldIds.add(id);
+                ids.add(id + "-v" + (round + 2));
+                embeddings.add(randomEmbedding(random));
+                segments.add(randomSegment(random, random.nextInt(1_000_000)));
+            }
+        }
+        store.replaceAll(oldIds, ids, embeddings, segments);
+        oldIds.forEach(live::remove);
+        for (int i = 0; i < ids.size(); i++) {
+            live.put(ids.get(i), new Entry(VectorMath.normalize(embeddings.get(i).vector()), segments.get(i)));
+        }
+    }
+
+    // Référence : tous les segments, du plus proche au plus éloigné, puis le filtre
+    private static List<String> exactSearch(Map<String, Entry> live, Embedding query, Filter filter) {
+        float[] normalized = VectorMath.normalize(query.vector());
+        return live.entrySet().stream()
+                .filter(entry -> filter.test(entry.getValue().segment().metadata()))
+                .sorted(Comparator.comparingDouble(
+                        (Map.Entry<String, Entry> entry) -> -VectorMath.dot(entry.getValue().vector(), 0, normalized, DIMENSION)))
+                .limit(K)
+                .map(Map.Entry::getKey)
+                .toList();
+    }
+
+    private static Embedding randomEmbedding(Random random) {
+        float[] vector = new float[DIMENSION];
+        for (int d = 0; d < DIMENSION; d++) {
+            vector[d] = (float) random.nextGaussian();
+        }
+        return Embedding.from(vector);
+    }
+
+    // Clés indexées (fichier, page, section parfois absente, heure d'ingestion) et une clé non indexée
+    private static TextSegment randomSegment(Random random, int number) {
+        Metadata metadata = new Metadata()
+                .put("file_name", "doc-" + random.nextInt(4) + ".pdf")
+                .put("page", random.nextInt(50))
+                .put("ingested_at", 1000L + random.nextInt(10))
+                .put("author", "a" + random.nextInt(5));
+        if (random.nextInt(5) > 0) {
+            metadata.put("section", "s" + random.nextInt(7));
+        }
+        return TextSegment.from("segment " + number, metadata);
+    }
+
+    private static void checkBitmaps(Random random) {
+        for (int round = 0; round < 30; round++) {
+            // Grands intervalles : plusieurs groupes de 65536 ; petits : groupes denses (tables de bits)
+            int range = round % 3 == 0 ? 300_000 : 20_000;
+            int n = random.nextInt(15_000);
+            RoaringBitmap left = new RoaringBitmap();
+            RoaringBitmap right = new RoaringBitmap();
+            TreeSet<Integer> leftSet = new TreeSet<>();
+            TreeSet<Integer> rightSet = new TreeSet<>();
+            for (int i = 0; i < n; i++) {
+                int value = random.nextInt(range);
+                left.add(value);
+                leftSet.add(value);
+                value = random.nextInt(range);
+                right.add(value);
+                rightSet.add(value);
+            }
+            for (int i = 0; i < n / 3; i++) {
+                int value = random.nextInt(range);
+                left.remove(value);
+                leftSet.remove(value);
+            }
+            checkBitmap(left, leftSet, random, range);
+            checkBitmap(right, rightSet, random, range);
+
+            TreeSet<Integer> expected = new TreeSet<>(leftSet);
+            expected.retainAll(rightSet);
+            checkBitmap(left.and(right), expected, random, range);
+            expected = new TreeSet<>(leftSet);
+            expected.addAll(rightSet);
+            checkBitmap(left.or(right), expected, random, range);
+            expected = new TreeSet<>(leftSet);
+            expected.removeAll(rightSet);
+            checkBitmap(left.andNot(right), expected, random, range);
+            // Les opérations ne modifient pas leurs opérandes
+            checkBitmap(left, leftSet, random, range);
+        }
+    }
+
+    private static void checkBitmap(RoaringBitmap bitmap, TreeSet<Integer> expected, Random random, int range) {
+        List<Integer> values = new ArrayList<>();
+        bitmap.forEach(values::add);
+        if (!values.equals(new ArrayList<>(expected)) || bitmap.cardinality() != expected.size()
+                || bitmap.isEmpty() != expected.isEmpty()) {
+            fail("RoaringBitmap", -1, null, values.size() + " valeurs au lieu de " + expected.size());
+        }
+        for (int i = 0; i < 100; i++) {
+            int value = random.nextInt(range);
+            if (bitmap.contains(value) != expected.contains(value)) {
+                fail("RoaringBitmap", -1, null, "contains(" + value + ")");
+            }
+        }
+    }
+
+    private static void fail(String name, int round, Filter filter, String detail) {
+        System.out.println(" ÉCART " + name + (round >= 0 ? ", passage " + round : "")
+                + (filter != null ? ", filtre " + filter : "") + " : " + detail);
+        System.exit(1);
+    }
+}
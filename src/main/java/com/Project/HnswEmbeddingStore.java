@@ -0,0 +1,779 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Magasin d'embeddings approché fondé sur un graphe HNSW (Hierarchical Navigable Small World).
+ * <p>
+ * - m : nombre de voisins par nœud (2 * m sur la couche 0) ;
+ * - efConstruction : largeur de la recherche lors des insertions (qualité du graphe) ;
+ * - efSearch : largeur de la recherche lors des requêtes (rappel contre latence).
+ * <p>
+ * Les insertions sont incrémentales ; une suppression marque le nœud comme supprimé
+ * (il sert encore à la navigation mais n'est plus renvoyé). Au-delà de 25 % de nœuds supprimés,
+ * le graphe est reconstruit sur les seuls nœuds vivants. Le graphe se sauvegarde avec
+ * {@link #save(Path)} et se relit avec {@link #load(Path)}. Voir {@link RecallReport}
+ * pour le compromis rappel / latence face au parcours exact de {@link VectorEmbeddingStore}.
+ * <p>
+ * Recherche filtrée : les nœuds autorisés viennent de l'index des métadonnées
+ * ({@link MetadataBitmapIndex}). Un filtre sélectif (au plus 10 % des nœuds) est servi par un
+ * parcours exact de ces seuls nœuds ; sinon le faisceau est élargi (ef doublé) jusqu'à trouver
+ * maxResults nœuds autorisés, ou un score sous minScore, et devient un parcours exact quand ef
+ * atteint la taille du graphe. Le même élargissement compense les nœuds supprimés.
+ */
+public class HnswEmbeddingStore implements ReplaceableEmbeddingStore {
+
+    private static final int MAGIC = 0x484E5331;   // "HNS1"
+    // Au-dessous de cette part de nœuds autorisés, le parcours exact coûte moins que le graphe
+    private static final double BRUTE_FORCE_SELECTIVITY = 0.1;
+    // Au-delà de cette part de nœuds supprimés, le graphe est reconstruit sans eux
+    private static final double COMPACTION_THRESHOLD = 0.25;
+
+    private final int m;
+    private final int maxLinksLevel0;
+    private final int efConstruction;
+    private volatile int efSearch;
+    private final double levelMultiplier;
+    private final SplittableRandom random = new SplittableRandom(42);
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int dimension = -1;
+    private int count;
+    private float[] vectors = new float[0];
+    private String[] ids = new String[0];
+    private TextSegment[] segments = new TextSegment[0];
+    // links[nœud][couche] = { nombre de voisins, voisin 1, voisin 2, ... }
+    private int[][][] links = new int[0][][];
+    private final BitSet deleted = new BitSet();
+    private final Map<String, Integer> positions = new HashMap<>();
+    // Nœuds vivants seulement : un nœud supprimé en sort
+    private final MetadataBitmapIndex index = new MetadataBitmapIndex(MetadataBitmapIndex.DEFAULT_KEYS);
+    private int entryPoint = -1;
+    private int maxLevel = -1;
+
+    public HnswEmbeddingStore() {
+        this(16, 200, 64);
+    }
+
+    public HnswEmbeddingStore(int m, int efConstruction, int efSearch) {
+        // m = 1 donnerait un multiplicateur de niveau infini (1 / log 1)
+        if (m < 2 || efConstruction < 1 || efSearch < 1) {
+            throw new IllegalArgumentException("m doit valoir au moins 2, efConstruction et efSearch au moins 1");
+        }
+        this.m = m;
+        this.maxLinksLevel0 = 2 * m;
+        this.efConstruction = efConstruction;
+        this.efSearch = efSearch;
+        this.levelMultiplier = 1 / Math.log(m);
+    }
+
+    /**
+     * Modifie efSearch sans reconstruire le graphe.
+     */
+    public void efSearch(int efSearch) {
+        if (efSearch < 1) {
+            throw new IllegalArgumentException("efSearch doit valoir au moins 1");
+        }
+        this.efSearch = efSearch;
+    }
+
+    // ============ INSERTION ============
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(segment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, segments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        if (segments != null && segments.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Autant de segments que d'embeddings sont attendus");
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < embeddings.size(); i++) {
+                insert(ids.get(i), embeddings.get(i).vector(), segments == null ? null : segments.get(i));
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Marque les nœuds de oldIds supprimés et insère les nouveaux sous un seul verrou d'écriture.
+     */
+    @Override
+    public void replaceAll(Collection<String> oldIds,
+                           List<String> ids,
+                           List<Embedding> embeddings,
+                           List<TextSegment> segments) {
+        if (segments != null && segments.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Autant de segments que d'embeddings sont attendus");
+        }
+        lock.writeLock().lock();
+        try {
+            oldIds.forEach(this::markDeleted);
+            for (int i = 0; i < embeddings.size(); i++) {
+                insert(ids.get(i), embeddings.get(i).vector(), segments == null ? null : segments.get(i));
+            }
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(String id, float[] vector, TextSegment segment) {
+        if (dimension == -1) {
+            dimension = vector.length;
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("Dimension " + vector.length + " au lieu de " + dimension);
+        }
+        // Un nœud du graphe ne se met pas à jour : l'ancienne version est marquée supprimée
+        Integer previous = positions.get(id);
+        if (previous != null) {
+            deleted.set(previous);
+            index.remove(previous, segments[previous]);
+        }
+
+        int node = count++;
+        ensureCapacity(count);
+        float[] normalized = VectorMath.normalize(vector);
+        System.arraycopy(normalized, 0, vectors, node * dimension, dimension);
+        ids[node] = id;
+        segments[node] = segment;
+        positions.put(id, node);
+        index.add(node, segment);
+
+        int level = randomLevel();
+        links[node] = new int[level + 1][];
+        for (int l = 0; l <= level; l++) {
+            links[node][l] = new int[(l == 0 ? maxLinksLevel0 : m) + 1];
+        }
+
+        if (entryPoint == -1) {
+            entryPoint = node;
+            maxLevel = level;
+            return;
+        }
+
+        int current = entryPoint;
+        for (int l = maxLevel; l > level; l--) {
+            current = greedyClosest(normalized, current, l);
+        }
+        for (int l = Math.min(level, maxLevel); l >= 0; l--) {
+            ScoredHeap nearest = searchLayer(normalized, current, efConstruction, l, new BitSet(count));
+            int[] candidates = nearest.drainDescending();
+            int[] selected = selectNeighbors(node * dimension, candidates, m);
+            setLinks(node, l, selected, selected.length);
+            for (int neighbour : selected) {
+                connect(neighbour, node, l);
+            }
+            current = candidates[0];
+        }
+
+        if (level > maxLevel) {
+            entryPoint = node;
+            maxLevel = level;
+        }
+    }
+
+    private int randomLevel() {
+        double uniform = 1.0 - random.nextDouble();   // dans ]0, 1]
+        return (int) Math.floor(-Math.log(uniform) * levelMultiplier);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = VectorEmbeddingStore.grownCapacity(ids.length, required, dimension);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        ids = Arrays.copyOf(ids, capacity);
+        segments = Arrays.copyOf(segments, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+
+    // Ajoute le lien voisin -> nœud ; si la liste est pleine, elle est ré-élaguée par l'heuristique
+    private void connect(int neighbour, int node, int level) {
+        int[] current = links[neighbour][level];
+        int capacity = current.length - 1;
+        int size = current[0];
+        if (size < capacity) {
+            current[size + 1] = node;
+            current[0] = size + 1;
+            return;
+        }
+
+        int base = neighbour * dimension;
+        int[] candidates = Arrays.copyOfRange(current, 1, size + 2);
+        candidates[size] = node;
+        float[] scores = new float[candidates.length];
+        for (int i = 0; i < candidates.length; i++) {
+            scores[i] = similarity(base, candidates[i]);
+        }
+        sortDescending(candidates, scores);
+        int[] selected = selectNeighbors(base, candidates, capacity);
+        setLinks(neighbour, level, selected, selected.length);
+    }
+
+    private void setLinks(int node, int level, int[] neighbours, int size) {
+        int[] target = links[node][level];
+        target[0] = size;
+        System.arraycopy(neighbours, 0, target, 1, size);
+    }
+
+    /**
+     * Heuristique de sélection HNSW : un candidat n'est gardé que s'il est plus proche du nœud
+     * de base que de tous les voisins déjà retenus ; on complète ensuite avec les écartés.
+     * Les candidats sont triés du plus proche au plus éloigné.
+     */
+    private int[] selectNeighbors(int baseOffset, int[] candidates, int max) {
+        int[] selected = new int[Math.min(max, candidates.length)];
+        int size = 0;
+        boolean[] kept = new boolean[candidates.length];
+        for (int i = 0; i < candidates.length && size < selected.length; i++) {
+            int candidate = candidates[i];
+            float toBase = similarity(baseOffset, candidate);
+            boolean diverse = true;
+            for (int j = 0; j < size; j++) {
+                if (similarity(selected[j] * dimension, candidate) > toBase) {
+                    diverse = false;
+                    break;
+                }
+            }
+            if (diverse) {
+                selected[size++] = candidate;
+                kept[i] = true;
+            }
+        }
+        for (int i = 0; i < candidates.length && size < selected.length; i++) {
+            if (!kept[i]) {
+                selected[size++] = candidates[i];
+            }
+        }
+        return selected;
+    }
+
+    // ============ RECHERCHE ============
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = VectorMath.normalize(request.queryEmbedding().vector());
+        Filter filter = request.filter();
+        int maxResults = request.maxResults();
+        // score de pertinence (cos + 1) / 2 >= minScore  <=>  cos >= 2 * minScore - 1
+        float minCosine = (float) (2 * request.minScore() - 1);
+
+        lock.readLock().lock();
+        try {
+            if (entryPoint == -1 || maxResults <= 0) {
+                return new EmbeddingSearchResult<>(List.of());
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Dimension " + query.length + " au lieu de " + dimension);
+            }
+
+            // null : tous les nœuds vivants
+            RoaringBitmap allowed = filter == null ? null : allowed(filter);
+            if (allowed != null && allowed.cardinality() <= count * BRUTE_FORCE_SELECTIVITY) {
+                return new EmbeddingSearchResult<>(bruteForce(query, allowed, maxResults, minCosine));
+            }
+
+            int current = entryPoint;
+            for (int l = maxLevel; l > 0; l--) {
+                current = greedyClosest(query, current, l);
+            }
+            for (int ef = Math.max(efSearch, maxResults); ef < count; ef *= 2) {
+                ScoredHeap nearest = searchLayer(query, current, ef, 0, new BitSet(count));
+                float[] scores = new float[nearest.size()];
+                int[] nodes = nearest.drainDescending(scores);
+
+                List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(maxResults);
+                boolean belowMinScore = false;
+                for (int i = 0; i < nodes.length && matches.size() < maxResults; i++) {
+                    int node = nodes[i];
+                    if (scores[i] < minCosine) {
+                        belowMinScore = true;
+                        break;
+                    }
+                    if (!deleted.get(node) && (allowed == null || allowed.contains(node))) {
+                        matches.add(match(node, scores[i]));
+                    }
+                }
+                // Faisceau plus large seulement si des nœuds autorisés au-dessus de minScore peuvent manquer
+                if (matches.size() == maxResults || belowMinScore) {
+                    return new EmbeddingSearchResult<>(matches);
+                }
+            }
+            return new EmbeddingSearchResult<>(bruteForce(query, allowed, maxResults, minCosine));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Nœuds vivants qui satisfont le filtre : sélection de l'index, vérifiée un à un si inexacte
+    private RoaringBitmap allowed(Filter filter) {
+        MetadataBitmapIndex.Selection selection = index.select(filter);
+        if (selection != null && selection.exact()) {
+            return selection.positions();
+        }
+        RoaringBitmap allowed = new RoaringBitmap();
+        if (selection == null) {
+            for (int node = 0; node < count; node++) {
+                if (!deleted.get(node) && segments[node] != null && filter.test(segments[node].metadata())) {
+                    allowed.add(node);
+                }
+            }
+        } else {
+            selection.positions().forEach(node -> {
+                if (filter.test(segments[node].metadata())) {
+                    allowed.add(node);
+                }
+            });
+        }
+        return allowed;
+    }
+
+    // Parcours exact des nœuds autorisés (tous les nœuds vivants si allowed est null)
+    private List<EmbeddingMatch<TextSegment>> bruteForce(float[] query, RoaringBitmap allowed,
+                                                         int maxResults, float minCosine) {
+        TopK topK = new TopK(Math.min(maxResults, count));
+        IntConsumer score = node -> {
+            float cosine = VectorMath.dot(vectors, node * dimension, query, dimension);
+            if (cosine >= minCosine && cosine > topK.threshold()) {
+                topK.offer(node, cosine);
+            }
+        };
+        if (allowed != null) {
+            allowed.forEach(score);
+        } else {
+            for (int node = deleted.nextClearBit(0); node < count; node = deleted.nextClearBit(node + 1)) {
+                score.accept(node);
+            }
+        }
+        int found = topK.size();
+        int[] nodes = new int[found];
+        float[] cosines = new float[found];
+        topK.drainDescending(nodes, cosines);
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            matches.add(match(nodes[i], cosines[i]));
+        }
+        return matches;
+    }
+
+    private EmbeddingMatch<TextSegment> match(int node, float cosine) {
+        float[] vector = Arrays.copyOfRange(vectors, node * dimension, (node + 1) * dimension);
+        return new EmbeddingMatch<>(VectorMath.relevanceScore(cosine), ids[node], Embedding.from(vector), segments[node]);
+    }
+
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = VectorMath.dot(vectors, current * dimension, query, dimension);
+        boolean improved = true;
+        while (improved) {
+            improved = false;
+            int[] neighbours = links[current][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                float score = VectorMath.dot(vectors, neighbour * dimension, query, dimension);
+                if (score > best) {
+                    best = score;
+                    current = neighbour;
+                    improved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    // Recherche en faisceau sur une couche ; renvoie les ef meilleurs nœuds (tas-min)
+    private ScoredHeap searchLayer(float[] query, int entry, int ef, int level, BitSet visited) {
+        ScoredHeap candidates = new ScoredHeap(true, ef);
+        ScoredHeap results = new ScoredHeap(false, ef + 1);
+
+        float entryScore = VectorMath.dot(vectors, entry * dimension, query, dimension);
+        visited.set(entry);
+        candidates.push(entry, entryScore);
+        results.push(entry, entryScore);
+
+        while (candidates.size() > 0) {
+            float candidateScore = candidates.topScore();
+            int candidate = candidates.pop();
+            if (results.size() >= ef && candidateScore < results.topScore()) {
+                break;
+            }
+            int[] neighbours = links[candidate][level];
+            for (int i = 1; i <= neighbours[0]; i++) {
+                int neighbour = neighbours[i];
+                if (visited.get(neighbour)) {
+                    continue;
+                }
+                visited.set(neighbour);
+                float score = VectorMath.dot(vectors, neighbour * dimension, query, dimension);
+                if (results.size() < ef || score > results.topScore()) {
+                    candidates.push(neighbour, score);
+                    results.push(neighbour, score);
+                    if (results.size() > ef) {
+                        results.pop();
+                    }
+                }
+            }
+        }
+        return results;
+    }
+
+    private float similarity(int baseOffset, int node) {
+        return VectorMath.dot(vectors, baseOffset, vectors, node * dimension, dimension);
+    }
+
+    private static void sortDescending(int[] nodes, float[] scores) {
+        // tri par insertion : au plus 2 * m + 1 éléments
+        for (int i = 1; i < nodes.length; i++) {
+            int node = nodes[i];
+            float score = scores[i];
+            int j = i - 1;
+            while (j >= 0 && scores[j] < score) {
+                nodes[j + 1] = nodes[j];
+                scores[j + 1] = scores[j];
+                j--;
+            }
+            nodes[j + 1] = node;
+            scores[j + 1] = score;
+        }
+    }
+
+    // ============ SUPPRESSION ============
+
+    @Override
+    public void removeAll(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            idsToRemove.forEach(this::markDeleted);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void markDeleted(String id) {
+        Integer node = positions.remove(id);
+        if (node != null) {
+            deleted.set(node);
+            index.remove(node, segments[node]);
+        }
+    }
+
+    /**
+     * Reconstruit le graphe sur les seuls nœuds vivants quand les nœuds supprimés dépassent
+     * {@link #COMPACTION_THRESHOLD} : sans cela, vecteurs, liens et parcours de recherche grossissent
+     * indéfiniment avec les remplacements. Appelé sous le verrou d'écriture.
+     */
+    private void compactIfNeeded() {
+        int removed = deleted.cardinality();
+        if (removed == 0 || removed <= count * COMPACTION_THRESHOLD) {
+            return;
+        }
+        float[] oldVectors = vectors;
+        String[] oldIds = ids;
+        TextSegment[] oldSegments = segments;
+        BitSet oldDeleted = (BitSet) deleted.clone();
+        int oldCount = count;
+
+        vectors = new float[0];
+        ids = new String[0];
+        segments = new TextSegment[0];
+        links = new int[0][][];
+        count = 0;
+        entryPoint = -1;
+        maxLevel = -1;
+        deleted.clear();
+        positions.clear();
+        index.clear();
+        ensureCapacity(oldCount - removed);
+        for (int node = oldDeleted.nextClearBit(0); node < oldCount; node = oldDeleted.nextClearBit(node + 1)) {
+            float[] vector = Arrays.copyOfRange(oldVectors, node * dimension, (node + 1) * dimension);
+            insert(oldIds[node], vector, oldSegments[node]);
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            List<String> matching = new ArrayList<>();
+            allowed(filter).forEach(node -> matching.add(ids[node]));
+            matching.forEach(this::markDeleted);
+            compactIfNeeded();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            count = 0;
+            entryPoint = -1;
+            maxLevel = -1;
+            deleted.clear();
+            positions.clear();
+            index.clear();
+            Arrays.fill(ids, null);
+            Arrays.fill(segments, null);
+            Arrays.fill(links, null);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Nombre d'embeddings renvoyables (hors nœuds supprimés).
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return positions.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ============ PERSISTANCE ============
+
+    /**
+     * Sauvegarde le graphe complet (vecteurs, segments et liens) dans un fichier binaire.
+     */
+    public void save(Path file) throws IOException {
+        lock.readLock().lock();
+        try {
+            Path tmp = Files.createTempFile(file.toAbsolutePath().getParent(), file.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(m);
+                out.writeInt(efConstruction);
+                out.writeInt(efSearch);
+                out.writeInt(dimension);
+                out.writeInt(count);
+                out.writeInt(entryPoint);
+                out.writeInt(maxLevel);
+                for (int i = 0; i < count * dimension; i++) {
+                    out.writeFloat(vectors[i]);
+                }
+                for (int node = 0; node < count; node++) {
+                    PersistentEmbeddingIndex.writeString(out, ids[node]);
+                    out.writeBoolean(deleted.get(node));
+                    out.writeBoolean(segments[node] != null);
+                    if (segments[node] != null) {
+                        PersistentEmbeddingIndex.writeSegment(out, segments[node]);
+                    }
+                    out.writeInt(links[node].length);
+                    for (int[] level : links[node]) {
+                        out.writeInt(level.length);
+                        for (int i = 0; i <= level[0]; i++) {
+                            out.writeInt(level[i]);
+                        }
+                    }
+                }
+            }
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Relit un graphe sauvegardé par {@link #save(Path)}, par projection mémoire.
+     */
+    public static HnswEmbeddingStore load(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("Format de graphe inconnu : " + file);
+            }
+            HnswEmbeddingStore store = new HnswEmbeddingStore(buffer.getInt(), buffer.getInt(), buffer.getInt());
+            store.dimension = buffer.getInt();
+            int count = buffer.getInt();
+            store.entryPoint = buffer.getInt();
+            store.maxLevel = buffer.getInt();
+            if (count > 0) {
+                store.ensureCapacity(count);
+                buffer.asFloatBuffer().get(store.vectors, 0, count * store.dimension);
+                buffer.position(buffer.position() + count * store.dimension * Float.BYTES);
+            }
+            store.count = count;
+
+            for (int node = 0; node < count; node++) {
+                store.ids[node] = PersistentEmbeddingIndex.readString(buffer);
+                if (buffer.get() != 0) {
+                    store.deleted.set(node);
+                } else {
+                    store.positions.put(store.ids[node], node);
+                }
+                if (buffer.get() != 0) {
+                    store.segments[node] = PersistentEmbeddingIndex.readSegment(buffer);
+                }
+                if (!store.deleted.get(node)) {
+                    store.index.add(node, store.segments[node]);
+                }
+                int levels = buffer.getInt();
+                store.links[node] = new int[levels][];
+                for (int l = 0; l < levels; l++) {
+                    int[] level = new int[buffer.getInt()];
+                    level[0] = buffer.getInt();
+                    for (int i = 1; i <= level[0]; i++) {
+                        level[i] = buffer.getInt();
+                    }
+                    store.links[node][l] = level;
+                }
+            }
+            return store;
+        }
+    }
+
+    /**
+     * Tas de nœuds scorés sur tableaux primitifs (max-tas ou min-tas).
+     */
+    private static final class ScoredHeap {
+
+        private final boolean max;
+        private int[] nodes;
+        private float[] scores;
+        private int size;
+
+        ScoredHeap(boolean max, int initialCapacity) {
+            this.max = max;
+            this.nodes = new int[Math.max(4, initialCapacity)];
+            this.scores = new float[nodes.length];
+        }
+
+        int size() {
+            return size;
+        }
+
+        float topScore() {
+            return scores[0];
+        }
+
+        void push(int node, float score) {
+            if (size == nodes.length) {
+                nodes = Arrays.copyOf(nodes, size * 2);
+                scores = Arrays.copyOf(scores, size * 2);
+            }
+            int i = size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!before(score, scores[parent])) {
+                    break;
+                }
+                nodes[i] = nodes[parent];
+                scores[i] = scores[parent];
+                i = parent;
+            }
+            nodes[i] = node;
+            scores[i] = score;
+        }
+
+        int pop() {
+            int top = nodes[0];
+            int lastNode = nodes[--size];
+            float lastScore = scores[size];
+            int i = 0;
+            while (true) {
+                int child = 2 * i + 1;
+                if (child >= size) {
+                    break;
+                }
+                if (child + 1 < size && before(scores[child + 1], scores[child])) {
+                    child++;
+                }
+                if (!before(scores[child], lastScore)) {
+                    break;
+                }
+                nodes[i] = nodes[child];
+                scores[i] = scores[child];
+                i = child;
+            }
+            nodes[i] = lastNode;
+            scores[i] = lastScore;
+            return top;
+        }
+
+        int[] drainDescending() {
+            return drainDescending(new float[size]);
+        }
+
+        // Réservé au min-tas : vide le tas du meilleur score au moins bon
+        int[] drainDescending(float[] outScores) {
+            int[] out = new int[size];
+            for (int i = size - 1; i >= 0; i--) {
+                outScores[i] = scores[0];
+                out[i] = pop();
+            }
+            return out;
+        }
+
+        private boolean before(float a, float b) {
+            return max ? a > b : a < b;
+        }
+    }
+}
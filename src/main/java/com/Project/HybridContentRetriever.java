@@ -0,0 +1,162 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Retriever hybride : recherche sémantique dans le magasin d'embeddings et recherche BM25
+ * dans un {@link LexicalIndex} sur les mêmes segments, fusionnées par Reciprocal Rank Fusion
+ * (score = somme des 1 / (k + rang) sur les deux listes).
+ * <p>
+ * Un segment bien classé par les deux recherches passe devant ; un terme exact (sigle, nom
+ * d'API) que l'embedding ne capte pas remonte quand même par la liste lexicale.
+ * Aucun appel au LM n'est ajouté. Avec un filtre de métadonnées, la liste sémantique ne porte
+ * que sur les segments retenus (plusieurs documents peuvent partager un seul magasin).
+ */
+public class HybridContentRetriever implements ContentRetriever {
+
+    private final EmbeddingStore<TextSegment> embeddingStore;
+    private final EmbeddingModel embeddingModel;
+    private final LexicalIndex lexicalIndex;
+    private final int maxResults;
+    private final int candidates;
+    private final double minScore;
+    private final int rrfK;
+    private final Filter filter;
+
+    private HybridContentRetriever(Builder builder) {
+        this.embeddingStore = builder.embeddingStore;
+        this.embeddingModel = builder.embeddingModel;
+        this.lexicalIndex = builder.lexicalIndex;
+        this.maxResults = builder.maxResults;
+        this.candidates = builder.candidates;
+        this.minScore = builder.minScore;
+        this.rrfK = builder.rrfK;
+        this.filter = builder.filter;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Content> retrieve(Query query) {
+        Map<TextSegment, Double> fused = new LinkedHashMap<>();
+
+        // 1. Liste sémantique
+        Embedding queryEmbedding = embeddingModel.embed(query.text()).content();
+        List<EmbeddingMatch<TextSegment>> semantic = embeddingStore.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(queryEmbedding)
+                .maxResults(candidates)
+                .minScore(minScore)
+                .filter(filter)
+                .build()).matches();
+        for (int rank = 0; rank < semantic.size(); rank++) {
+            fused.merge(semantic.get(rank).embedded(), 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+
+        // 2. Liste lexicale
+        List<LexicalIndex.Match> lexical = lexicalIndex.search(query.text(), candidates);
+        for (int rank = 0; rank < lexical.size(); rank++) {
+            fused.merge(lexical.get(rank).segment(), 1.0 / (rrfK + rank + 1), Double::sum);
+        }
+
+        // 3. Fusion
+        List<Map.Entry<TextSegment, Double>> ranked = new ArrayList<>(fused.entrySet());
+        ranked.sort(Map.Entry.<TextSegment, Double>comparingByValue().reversed());
+        List<Content> contents = new ArrayList<>(Math.min(maxResults, ranked.size()));
+        for (int i = 0; i < ranked.size() && i < maxResults; i++) {
+            contents.add(Content.from(ranked.get(i).getKey()));
+        }
+        return contents;
+    }
+
+    public static class Builder {
+
+        private EmbeddingStore<TextSegment> embeddingStore;
+        private EmbeddingModel embeddingModel;
+        private LexicalIndex lexicalIndex;
+        private int maxResults = 2;
+        private int candidates = 10;
+        private double minScore = 0.5;
+        private int rrfK = 60;
+        private Filter filter;
+
+        public Builder embeddingStore(EmbeddingStore<TextSegment> embeddingStore) {
+            this.embeddingStore = embeddingStore;
+            return this;
+        }
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder lexicalIndex(LexicalIndex lexicalIndex) {
+            this.lexicalIndex = lexicalIndex;
+            return this;
+        }
+
+        /**
+         * Nombre de segments retournés après fusion.
+         */
+        public Builder maxResults(int maxResults) {
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        /**
+         * Longueur de chacune des deux listes avant fusion.
+         */
+        public Builder candidates(int candidates) {
+            this.candidates = candidates;
+            return this;
+        }
+
+        /**
+         * Score minimal de la liste sémantique (même sens que pour EmbeddingStoreContentRetriever).
+         */
+        public Builder minScore(double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        /**
+         * Constante k de la fusion ; 60 est la valeur usuelle.
+         */
+        public Builder rrfK(int rrfK) {
+            this.rrfK = rrfK;
+            return this;
+        }
+
+        /**
+         * Filtre de métadonnées de la liste sémantique, par exemple
+         * {@code metadataKey(Document.FILE_NAME).isEqualTo("rag.pdf")} ; l'index lexical doit
+         * couvrir les mêmes segments.
+         */
+        public Builder filter(Filter filter) {
+            this.filter = filter;
+            return this;
+        }
+
+        public HybridContentRetriever build() {
+            if (embeddingStore == null || embeddingModel == null || lexicalIndex == null) {
+                throw new IllegalArgumentException("embeddingStore, embeddingModel et lexicalIndex sont obligatoires");
+            }
+            return new HybridContentRetriever(this);
+        }
+    }
+}
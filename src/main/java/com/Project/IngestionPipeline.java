@@ -0,0 +1,322 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.DocumentSplitter;
+import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
+import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
+import dev.langchain4j.data.document.splitter.DocumentSplitters;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Pipeline d'ingestion partagé par tous les programmes : extraction du texte, découpage récursif
+ * et calcul des embeddings, en parallèle sur plusieurs documents.
+ * <p>
+ * Les PDF sont lus par tranches de pages ({@link StreamingPdfLoader}) : chaque page est découpée
+ * dès son extraction et ses segments gardent leur numéro de page et leur section. Les autres formats
+ * passent par Tika. Chaque segment porte aussi le nom du fichier et l'heure d'ingestion
+ * ({@link #INGESTED_AT}) : ce sont les clés indexées par {@link VectorEmbeddingStore} pour les filtres.
+ * Les segments partent vers le modèle par petits lots ; le nombre de lots en cours est borné,
+ * si bien que l'extraction attend quand le calcul des embeddings prend du retard.
+ * Les documents déjà indexés sont relus depuis {@link PersistentEmbeddingIndex}.
+ */
+public class IngestionPipeline implements AutoCloseable {
+
+    /**
+     * Heure d'ingestion du document, en millisecondes depuis l'époque Unix.
+     */
+    public static final String INGESTED_AT = "ingested_at";
+
+    private final EmbeddingModel embeddingModel;
+    private final int maxSegmentSize;
+    private final int maxOverlap;
+    private final int batchSize;
+    private final Semaphore batchesInFlight;
+    private final ExecutorService parsingExecutor;
+    private final ExecutorService embeddingExecutor;
+    private final boolean ownsExecutors;
+    private final StreamingPdfLoader pdfLoader;
+    private final Path cacheDirectory;
+
+    private IngestionPipeline(Builder builder) {
+        this.embeddingModel = builder.embeddingModel;
+        this.maxSegmentSize = builder.maxSegmentSize;
+        this.maxOverlap = builder.maxOverlap;
+        this.batchSize = builder.batchSize;
+        this.batchesInFlight = new Semaphore(builder.maxBatchesInFlight);
+        this.ownsExecutors = builder.parsingExecutor == null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        this.parsingExecutor = ownsExecutors ? Executors.newFixedThreadPool(threads) : builder.parsingExecutor;
+        this.embeddingExecutor = ownsExecutors ? Executors.newFixedThreadPool(threads) : builder.embeddingExecutor;
+        this.cacheDirectory = builder.cacheDirectory;
+        this.pdfLoader = StreamingPdfLoader.builder().pagesPerRange(builder.pagesPerRange).build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Ingère un seul document.
+     */
+    public PersistentEmbeddingIndex.Contents ingest(Path document) throws IOException {
+        return ingestAll(List.of(document)).get(document);
+    }
+
+    /**
+     * Ingère tous les PDF d'un répertoire.
+     */
+    public Map<Path, PersistentEmbeddingIndex.Contents> ingestDirectory(Path directory) throws IOException {
+        List<Path> documents = new ArrayList<>();
+        try (DirectoryStream<Path> pdfs = Files.newDirectoryStream(directory, IngestionPipeline::isPdf)) {
+            pdfs.forEach(documents::add);
+        }
+        return ingestAll(documents);
+    }
+
+    /**
+     * Extension .pdf sans distinction de casse (rapport.PDF compte) ; partagé avec {@link WatchedDirectoryIngestion}.
+     */
+    static boolean isPdf(Path file) {
+        return file.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".pdf");
+    }
+
+    /**
+     * Ingère les documents en parallèle ; le résultat garde l'ordre de la liste.
+     */
+    public Map<Path, PersistentEmbeddingIndex.Contents> ingestAll(List<Path> documents) throws IOException {
+        Map<Path, CompletableFuture<PersistentEmbeddingIndex.Contents>> futures = new LinkedHashMap<>();
+        for (Path document : documents) {
+            futures.put(document, CompletableFuture
+                    .supplyAsync(() -> parseAndSubmit(document), parsingExecutor)
+                    .thenCompose(pending -> pending));
+        }
+
+        Map<Path, PersistentEmbeddingIndex.Contents> results = new LinkedHashMap<>();
+        try {
+            for (Map.Entry<Path, CompletableFuture<PersistentEmbeddingIndex.Contents>> entry : futures.entrySet()) {
+                results.put(entry.getKey(), entry.getValue().join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    /**
+     * Oublie un document supprimé : son index persistant est effacé.
+     */
+    public void forget(Path document) throws IOException {
+        if (cacheDirectory != null) {
+            PersistentEmbeddingIndex.delete(document, cacheDirectory);
+        }
+    }
+
+    // ============ ÉTAPE 1 : CACHE, PARSING ET DÉCOUPAGE ============
+    private CompletableFuture<PersistentEmbeddingIndex.Contents> parseAndSubmit(Path document) {
+        boolean pdf = document.getFileName().toString().toLowerCase().endsWith(".pdf");
+        // Découpage page par page pour les PDF : les segments diffèrent de ceux du parsing Tika
+        // Le préfixe "meta:" écarte les index persistés avant l'ajout de section et ingested_at
+        String settings = "meta:" + (pdf ? "pages:" : "")
+                + PersistentEmbeddingIndex.splitterSettings(maxSegmentSize, maxOverlap);
+        try {
+            if (cacheDirectory != null) {
+                Optional<PersistentEmbeddingIndex.Contents> cached =
+                        PersistentEmbeddingIndex.load(document, settings, embeddingModel, cacheDirectory);
+                if (cached.isPresent()) {
+                    return CompletableFuture.completedFuture(cached.get());
+                }
+            }
+
+            DocumentSplitter splitter = DocumentSplitters.recursive(maxSegmentSize, maxOverlap);
+            long ingestedAt = System.currentTimeMillis();
+            List<TextSegment> segments = new ArrayList<>();
+            List<CompletableFuture<List<Embedding>>> batches = new ArrayList<>();
+            if (pdf) {
+                // Les lots partent au fil des tranches de pages, sans attendre la fin du document
+                int[] submitted = {0};
+                String[] section = {null};
+                pdfLoader.load(document, pages -> {
+                    for (Document page : pages) {
+                        // Une page sans titre reste dans la section de la page précédente
+                        if (page.metadata().containsKey(StreamingPdfLoader.SECTION)) {
+                            section[0] = page.metadata().getString(StreamingPdfLoader.SECTION);
+                        } else if (section[0] != null) {
+                            page.metadata().put(StreamingPdfLoader.SECTION, section[0]);
+                        }
+                        page.metadata().put(INGESTED_AT, ingestedAt);
+                        segments.addAll(splitter.split(page));
+                    }
+                    while (segments.size() - submitted[0] >= batchSize) {
+                        submitBatch(segments.subList(submitted[0], submitted[0] + batchSize), batches);
+                        submitted[0] += batchSize;
+                    }
+                });
+                if (submitted[0] < segments.size()) {
+                    submitBatch(segments.subList(submitted[0], segments.size()), batches);
+                }
+            } else {
+                Document parsed = FileSystemDocumentLoader.loadDocument(document, new ApacheTikaDocumentParser());
+                parsed.metadata().put(INGESTED_AT, ingestedAt);
+                segments.addAll(splitter.split(parsed));
+                for (int start = 0; start < segments.size(); start += batchSize) {
+                    submitBatch(segments.subList(start, Math.min(start + batchSize, segments.size())), batches);
+                }
+            }
+
+            return collect(batches).thenApply(embeddings -> {
+                PersistentEmbeddingIndex.Contents contents = new PersistentEmbeddingIndex.Contents(segments, embeddings);
+                if (cacheDirectory != null) {
+                    try {
+                        PersistentEmbeddingIndex.save(document, settings, embeddingModel, cacheDirectory, contents);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }
+                return contents;
+            });
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ============ ÉTAPE 2 : EMBEDDINGS PAR MICRO-LOTS ============
+    private void submitBatch(List<TextSegment> segments, List<CompletableFuture<List<Embedding>>> batches) {
+        // Copie : la liste des segments du document continue de grandir pendant le calcul
+        List<TextSegment> batch = List.copyOf(segments);
+
+        // Contre-pression : le thread de parsing attend qu'un lot se termine
+        batchesInFlight.acquireUninterruptibly();
+        batches.add(CompletableFuture.supplyAsync(() -> {
+            try {
+                return embeddingModel.embedAll(batch).content();
+            } finally {
+                batchesInFlight.release();
+            }
+        }, embeddingExecutor));
+    }
+
+    private static CompletableFuture<List<Embedding>> collect(List<CompletableFuture<List<Embedding>>> batches) {
+        return CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new)).thenApply(done -> {
+            List<Embedding> embeddings = new ArrayList<>();
+            for (CompletableFuture<List<Embedding>> batch : batches) {
+                embeddings.addAll(batch.join());
+            }
+            return embeddings;
+        });
+    }
+
+    @Override
+    public void close() {
+        pdfLoader.close();
+        if (ownsExecutors) {
+            parsingExecutor.shutdown();
+            embeddingExecutor.shutdown();
+        }
+    }
+
+    public static class Builder {
+
+        private EmbeddingModel embeddingModel;
+        private int maxSegmentSize = 600;
+        private int maxOverlap = 0;
+        private int batchSize = 16;
+        private int maxBatchesInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        private ExecutorService parsingExecutor;
+        private ExecutorService embeddingExecutor;
+        private Path cacheDirectory = PersistentEmbeddingIndex.defaultCacheDirectory();
+        private int pagesPerRange = 16;
+
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder maxSegmentSize(int maxSegmentSize) {
+            this.maxSegmentSize = maxSegmentSize;
+            return this;
+        }
+
+        public Builder maxOverlap(int maxOverlap) {
+            this.maxOverlap = maxOverlap;
+            return this;
+        }
+
+        /**
+         * Nombre de segments envoyés au modèle d'embeddings en un appel.
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Nombre maximal de lots en attente ou en cours de calcul.
+         */
+        public Builder maxBatchesInFlight(int maxBatchesInFlight) {
+            this.maxBatchesInFlight = maxBatchesInFlight;
+            return this;
+        }
+
+        /**
+         * Exécuteurs du parsing et des embeddings ; ils doivent être distincts, sinon les threads
+         * de parsing bloqués par la contre-pression priveraient les lots de threads.
+         * Ils restent à la charge de l'appelant (non fermés par {@link #close()}).
+         */
+        public Builder executors(ExecutorService parsingExecutor, ExecutorService embeddingExecutor) {
+            this.parsingExecutor = parsingExecutor;
+            this.embeddingExecutor = embeddingExecutor;
+            return this;
+        }
+
+        /**
+         * Pages d'un PDF extraites ensemble par un thread ({@link StreamingPdfLoader}).
+         */
+        public Builder pagesPerRange(int pagesPerRange) {
+            this.pagesPerRange = pagesPerRange;
+            return this;
+        }
+
+        /**
+         * Répertoire de l'index persistant, ou null pour toujours ré-ingérer.
+         */
+        public Builder cacheDirectory(Path cacheDirectory) {
+            this.cacheDirectory = cacheDirectory;
+            return this;
+        }
+
+        public IngestionPipeline build() {
+            if (embeddingModel == null) {
+                throw new IllegalArgumentException("embeddingModel est obligatoire");
+            }
+            if ((parsingExecutor == null) != (embeddingExecutor == null)) {
+                throw new IllegalArgumentException("Les exécuteurs de parsing et d'embeddings sont fournis ensemble, ou aucun des deux");
+            }
+            if (parsingExecutor != null && parsingExecutor == embeddingExecutor) {
+                throw new IllegalArgumentException("Les exécuteurs de parsing et d'embeddings doivent être distincts");
+            }
+            return new IngestionPipeline(this);
+        }
+    }
+}
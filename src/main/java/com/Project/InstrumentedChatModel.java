@@ -0,0 +1,99 @@
+package com.Project;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+import java.util.Set;
+import java.util.function.Supplier;
+
+/**
+ * Décorateur de ChatLanguageModel : durée de chaque appel (étape LLM, échecs compris),
+ * nombre d'appels réussis et en erreur, tokens consommés et, pour les appels tirés au sort, requête et réponse dans le {@link SampledPayloadLog}.
+ */
+public class InstrumentedChatModel implements ChatLanguageModel {
+
+    private final ChatLanguageModel delegate;
+    private final RagMetrics metrics;
+
+    public InstrumentedChatModel(ChatLanguageModel delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        boolean logged = sample(request.messages());
+        long start = System.nanoTime();
+        ChatResponse response;
+        try {
+            response = delegate.chat(request);
+        } catch (Throwable e) {
+            metrics.recordLlmError(System.nanoTime() - start);
+            throw e;
+        }
+        metrics.recordLlmCall(System.nanoTime() - start, response.tokenUsage());
+        if (logged) {
+            metrics.payloadLog().log("Réponse LM", response.aiMessage());
+        }
+        return response;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return measure(messages, () -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return measure(messages, () -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return measure(messages, () -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    private Response<AiMessage> measure(List<ChatMessage> messages, Supplier<Response<AiMessage>> call) {
+        boolean logged = sample(messages);
+        long start = System.nanoTime();
+        Response<AiMessage> response;
+        try {
+            response = call.get();
+        } catch (Throwable e) {
+            metrics.recordLlmError(System.nanoTime() - start);
+            throw e;
+        }
+        metrics.recordLlmCall(System.nanoTime() - start, response.tokenUsage());
+        if (logged) {
+            metrics.payloadLog().log("Réponse LM", response.content());
+        }
+        return response;
+    }
+
+    private boolean sample(List<ChatMessage> messages) {
+        SampledPayloadLog payloadLog = metrics.payloadLog();
+        if (payloadLog == null || !payloadLog.sample()) {
+            return false;
+        }
+        payloadLog.log("Requête LM", messages);
+        return true;
+    }
+}
@@ -0,0 +1,43 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.model.output.Response;
+
+import java.util.List;
+
+/**
+ * Décorateur d'EmbeddingModel : mesure l'embedding des requêtes (appels unitaires, étape
+ * QUERY_EMBEDDING). Les lots de l'ingestion (embedAll) passent sans mesure.
+ */
+public class InstrumentedEmbeddingModel implements EmbeddingModel {
+
+    private final EmbeddingModel delegate;
+    private final RagMetrics metrics;
+
+    public InstrumentedEmbeddingModel(EmbeddingModel delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Response<Embedding> embed(String text) {
+        return metrics.time(RagMetrics.Stage.QUERY_EMBEDDING, () -> delegate.embed(text));
+    }
+
+    @Override
+    public Response<Embedding> embed(TextSegment textSegment) {
+        return metrics.time(RagMetrics.Stage.QUERY_EMBEDDING, () -> delegate.embed(textSegment));
+    }
+
+    @Override
+    public Response<List<Embedding>> embedAll(List<TextSegment> textSegments) {
+        return delegate.embedAll(textSegments);
+    }
+
+    @Override
+    public int dimension() {
+        return delegate.dimension();
+    }
+}
@@ -0,0 +1,27 @@
+package com.Project;
+
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.query.Query;
+import dev.langchain4j.rag.query.router.QueryRouter;
+
+import java.util.Collection;
+
+/**
+ * Décorateur de QueryRouter : durée de la décision de routage (étape ROUTING),
+ * embedding de la requête ou appel au LM compris.
+ */
+public class InstrumentedQueryRouter implements QueryRouter {
+
+    private final QueryRouter delegate;
+    private final RagMetrics metrics;
+
+    public InstrumentedQueryRouter(QueryRouter delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public Collection<ContentRetriever> route(Query query) {
+        return metrics.time(RagMetrics.Stage.ROUTING, () -> delegate.route(query));
+    }
+}
@@ -0,0 +1,139 @@
+package com.Project;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.chat.response.StreamingChatResponseHandler;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Décorateur de StreamingChatLanguageModel : délai du premier token (étape FIRST_TOKEN),
+ * durée jusqu'à la réponse complète (étape LLM), tokens et journal échantillonné.
+ */
+public class InstrumentedStreamingChatModel implements StreamingChatLanguageModel {
+
+    private final StreamingChatLanguageModel delegate;
+    private final RagMetrics metrics;
+
+    public InstrumentedStreamingChatModel(StreamingChatLanguageModel delegate, RagMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    @Override
+    public void chat(ChatRequest request, StreamingChatResponseHandler handler) {
+        Call call = new Call(request.messages());
+        delegate.chat(request, new StreamingChatResponseHandler() {
+            @Override
+            public void onPartialResponse(String partialResponse) {
+                call.token();
+                handler.onPartialResponse(partialResponse);
+            }
+
+            @Override
+            public void onCompleteResponse(ChatResponse response) {
+                call.complete(response.aiMessage(), response.tokenUsage());
+                handler.onCompleteResponse(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                metrics.recordLlmError(System.nanoTime() - call.start);
+                handler.onError(error);
+            }
+        });
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        delegate.generate(messages, wrap(messages, handler));
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages,
+                         List<ToolSpecification> toolSpecifications,
+                         StreamingResponseHandler<AiMessage> handler) {
+        delegate.generate(messages, toolSpecifications, wrap(messages, handler));
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages,
+                         ToolSpecification toolSpecification,
+                         StreamingResponseHandler<AiMessage> handler) {
+        delegate.generate(messages, toolSpecification, wrap(messages, handler));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    private StreamingResponseHandler<AiMessage> wrap(List<ChatMessage> messages,
+                                                     StreamingResponseHandler<AiMessage> handler) {
+        Call call = new Call(messages);
+        return new StreamingResponseHandler<>() {
+            @Override
+            public void onNext(String token) {
+                call.token();
+                handler.onNext(token);
+            }
+
+            @Override
+            public void onComplete(Response<AiMessage> response) {
+                call.complete(response.content(), response.tokenUsage());
+                handler.onComplete(response);
+            }
+
+            @Override
+            public void onError(Throwable error) {
+                metrics.recordLlmError(System.nanoTime() - call.start);
+                handler.onError(error);
+            }
+        };
+    }
+
+    // État d'un appel : début, premier token déjà vu, appel retenu pour le journal
+    private final class Call {
+
+        private final long start = System.nanoTime();
+        private final AtomicBoolean firstToken = new AtomicBoolean();
+        private final boolean logged;
+
+        private Call(List<ChatMessage> messages) {
+            SampledPayloadLog payloadLog = metrics.payloadLog();
+            logged = payloadLog != null && payloadLog.sample();
+            if (logged) {
+                payloadLog.log("Requête LM", messages);
+            }
+        }
+
+        private void token() {
+            if (firstToken.compareAndSet(false, true)) {
+                metrics.record(RagMetrics.Stage.FIRST_TOKEN, System.nanoTime() - start);
+            }
+        }
+
+        private void complete(AiMessage message, TokenUsage tokenUsage) {
+            metrics.recordLlmCall(System.nanoTime() - start, tokenUsage);
+            if (logged) {
+                metrics.payloadLog().log("Réponse LM", message);
+            }
+        }
+    }
+}
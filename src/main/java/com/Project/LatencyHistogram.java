@@ -0,0 +1,94 @@
+package com.Project;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogramme de latences à buckets log-linéaires, sur le principe de HdrHistogram :
+ * chaque puissance de deux est découpée en 32 sous-buckets, l'erreur relative des percentiles
+ * reste sous 3 % de la microseconde à plusieurs jours.
+ * <p>
+ * L'enregistrement ne prend aucun verrou (un incrément atomique), il peut rester sur le chemin
+ * de chaque requête.
+ */
+public class LatencyHistogram {
+
+    /**
+     * Percentiles en millisecondes.
+     */
+    public record Snapshot(long count, double meanMillis, double p50, double p90, double p99, double p999,
+                           double maxMillis, double sumMillis) {
+    }
+
+    private static final int SUB_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int UNIT_SHIFT = 10;          // unité : 1024 ns, environ 1 µs
+    private static final int MAGNITUDES = 40;          // 2^40 µs, environ 12 jours
+    private static final int BUCKETS = (MAGNITUDES + 1) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            return;
+        }
+        counts.incrementAndGet(index(nanos >>> UNIT_SHIFT));
+        sumNanos.add(nanos);
+        maxNanos.accumulateAndGet(nanos, Math::max);
+    }
+
+    // Valeurs < 32 : un bucket par unité ; au-delà, les 5 bits qui suivent le bit de poids fort choisissent le sous-bucket
+    private static int index(long units) {
+        if (units < SUB_BUCKETS) {
+            return (int) units;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(units) - SUB_BITS;
+        int index = (shift + 1) * SUB_BUCKETS + (int) (units >>> shift) - SUB_BUCKETS;
+        return Math.min(index, BUCKETS - 1);
+    }
+
+    // Plus grande valeur (en ns) rangée dans le bucket, comme HdrHistogram
+    private static long upperBoundNanos(int index) {
+        if (index < SUB_BUCKETS) {
+            return ((long) (index + 1) << UNIT_SHIFT) - 1;
+        }
+        int shift = index / SUB_BUCKETS - 1;
+        long sub = index % SUB_BUCKETS + SUB_BUCKETS;
+        return ((sub + 1) << (shift + UNIT_SHIFT)) - 1;
+    }
+
+    public Snapshot snapshot() {
+        long[] copy = new long[counts.length()];
+        long count = 0;
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        double sum = sumNanos.sum() / 1e6;
+        double max = maxNanos.get() / 1e6;
+        if (count == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0, 0, 0);
+        }
+        return new Snapshot(count, sum / count,
+                percentile(copy, count, 0.50, max),
+                percentile(copy, count, 0.90, max),
+                percentile(copy, count, 0.99, max),
+                percentile(copy, count, 0.999, max),
+                max, sum);
+    }
+
+    private static double percentile(long[] counts, long total, double p, double max) {
+        long rank = Math.max(1, (long) Math.ceil(p * total));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(upperBoundNanos(i) / 1e6, max);
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,214 @@
+package com.Project;
+
+import dev.langchain4j.data.segment.TextSegment;
+
+import java.io.ByteArrayOutputStream;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index inversé BM25 des segments, en mémoire, pour les requêtes à termes exacts
+ * (sigles, noms d'API) que la recherche sémantique rate.
+ * <p>
+ * Chaque terme a une liste de postings compressée dans un byte[] : numéros de segments
+ * en delta puis fréquence du terme, en entiers variables (varint). La recherche décode les
+ * listes des termes de la requête dans un tableau de scores et garde les k meilleurs avec
+ * {@link TopK} ; aucun objet n'est alloué par posting.
+ * L'index est immuable : il se reconstruit (en quelques millisecondes) quand le corpus change.
+ */
+public final class LexicalIndex {
+
+    /**
+     * Segment retrouvé et son score BM25.
+     */
+    public record Match(TextSegment segment, double score) {
+    }
+
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "le", "la", "les", "un", "une", "des", "du", "de", "d", "l", "et", "ou", "en", "au", "aux",
+            "a", "est", "sont", "que", "qui", "quoi", "ce", "ces", "cet", "cette", "pour", "par", "sur",
+            "dans", "avec", "sans", "il", "elle", "on", "se", "s", "qu", "ne", "pas", "plus", "comment",
+            "quel", "quelle", "quels", "quelles", "the", "of", "and", "to", "is", "in");
+
+    private final TextSegment[] segments;
+    private final Map<String, Integer> termIds;
+    private final byte[][] postings;
+    private final int[] documentFrequencies;
+    private final int[] lengths;
+    private final float averageLength;
+
+    private LexicalIndex(TextSegment[] segments, Map<String, Integer> termIds, byte[][] postings,
+                         int[] documentFrequencies, int[] lengths) {
+        this.segments = segments;
+        this.termIds = termIds;
+        this.postings = postings;
+        this.documentFrequencies = documentFrequencies;
+        this.lengths = lengths;
+        long total = 0;
+        for (int length : lengths) {
+            total += length;
+        }
+        this.averageLength = lengths.length == 0 ? 0 : total / (float) lengths.length;
+    }
+
+    /**
+     * Indexe les segments (ceux de l'ingestion, dans le même ordre que les embeddings).
+     */
+    public static LexicalIndex build(List<TextSegment> segments) {
+        Map<String, Integer> termIds = new HashMap<>();
+        List<ByteArrayOutputStream> lists = new ArrayList<>();
+        List<int[]> lastDocument = new ArrayList<>();   // dernier segment écrit par terme
+        int[] lengths = new int[segments.size()];
+
+        for (int doc = 0; doc < segments.size(); doc++) {
+            List<String> tokens = tokenize(segments.get(doc).text());
+            lengths[doc] = tokens.size();
+            Map<String, Integer> frequencies = new HashMap<>();
+            for (String token : tokens) {
+                frequencies.merge(token, 1, Integer::sum);
+            }
+            for (Map.Entry<String, Integer> entry : frequencies.entrySet()) {
+                int termId = termIds.computeIfAbsent(entry.getKey(), term -> {
+                    lists.add(new ByteArrayOutputStream());
+                    lastDocument.add(new int[]{-1, 0});
+                    return lists.size() - 1;
+                });
+                int[] state = lastDocument.get(termId);
+                writeVarint(lists.get(termId), doc - state[0]);
+                writeVarint(lists.get(termId), entry.getValue());
+                state[0] = doc;
+                state[1]++;
+            }
+        }
+
+        byte[][] postings = new byte[lists.size()][];
+        int[] documentFrequencies = new int[lists.size()];
+        for (int i = 0; i < postings.length; i++) {
+            postings[i] = lists.get(i).toByteArray();
+            documentFrequencies[i] = lastDocument.get(i)[1];
+        }
+        return new LexicalIndex(segments.toArray(new TextSegment[0]), termIds, postings, documentFrequencies, lengths);
+    }
+
+    /**
+     * Les maxResults segments de meilleur score BM25 (score &gt; 0), du meilleur au moins bon.
+     */
+    public List<Match> search(String query, int maxResults) {
+        if (segments.length == 0 || maxResults <= 0) {
+            return List.of();
+        }
+        float[] scores = new float[segments.length];
+        int[] touched = new int[segments.length];
+        int touchedCount = 0;
+
+        for (String term : Set.copyOf(tokenize(query))) {
+            Integer termId = termIds.get(term);
+            if (termId == null) {
+                continue;
+            }
+            float idf = idf(documentFrequencies[termId]);
+            byte[] list = postings[termId];
+            int[] position = {0};
+            int doc = -1;
+            while (position[0] < list.length) {
+                doc += readVarint(list, position);
+                int frequency = readVarint(list, position);
+                float norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                if (scores[doc] == 0) {
+                    touched[touchedCount++] = doc;
+                }
+                scores[doc] += idf * frequency * (K1 + 1) / (frequency + norm);
+            }
+        }
+
+        TopK topK = new TopK(Math.min(maxResults, Math.max(1, touchedCount)));
+        for (int i = 0; i < touchedCount; i++) {
+            int doc = touched[i];
+            if (scores[doc] > topK.threshold()) {
+                topK.offer(doc, scores[doc]);
+            }
+        }
+        int count = topK.size();
+        int[] best = new int[count];
+        float[] bestScores = new float[count];
+        topK.drainDescending(best, bestScores);
+
+        List<Match> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            matches.add(new Match(segments[best[i]], bestScores[i]));
+        }
+        return matches;
+    }
+
+    private float idf(int documentFrequency) {
+        return (float) Math.log(1 + (segments.length - documentFrequency + 0.5) / (documentFrequency + 0.5));
+    }
+
+    public int size() {
+        return segments.length;
+    }
+
+    /**
+     * Nombre de termes distincts et taille totale des postings compressés, en octets.
+     */
+    public String stats() {
+        long bytes = Arrays.stream(postings).mapToLong(list -> list.length).sum();
+        return String.format("Index lexical : %d segments, %d termes, %d Ko de postings",
+                segments.length, termIds.size(), bytes / 1024);
+    }
+
+    // ============ ANALYSE DU TEXTE ============
+    // minuscules, accents retirés, découpage sur tout ce qui n'est ni lettre ni chiffre,
+    // mots vides retirés ("LangChain4j" et "AiServices" restent des termes entiers)
+
+    static List<String> tokenize(String text) {
+        String folded = Normalizer.normalize(text.toLowerCase(Locale.ROOT), Normalizer.Form.NFD)
+                .replaceAll("\\p{M}+", "");
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= folded.length(); i++) {
+            boolean letterOrDigit = i < folded.length() && Character.isLetterOrDigit(folded.charAt(i));
+            if (letterOrDigit && start < 0) {
+                start = i;
+            } else if (!letterOrDigit && start >= 0) {
+                String token = folded.substring(start, i);
+                if (!STOP_WORDS.contains(token)) {
+                    tokens.add(token);
+                }
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    // ============ VARINT ============
+
+    private static void writeVarint(ByteArrayOutputStream out, int value) {
+        while ((value & ~0x7F) != 0) {
+            out.write((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        out.write(value);
+    }
+
+    private static int readVarint(byte[] bytes, int[] position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+}
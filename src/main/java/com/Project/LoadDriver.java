@@ -0,0 +1,207 @@
+package com.Project;
+
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
+import dev.langchain4j.service.TokenStream;
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.tavily.TavilyWebSearchEngine;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pilote de charge hors ligne : des utilisateurs simulés posent une liste de questions
+ * à l'assistant assemblé par {@link RagPipeline} comme dans Test3_Routage et Test5_Web (routage
+ * sur les 2 documents et le Web, recherche hybride, compression du contexte, mémoire par utilisateur,
+ * réponse en streaming via {@link StreamingAssistant}).
+ * <p>
+ * Par défaut Gemini et Tavily sont rejoués depuis -Drag.replay.file ({@link ReplayingStreamingChatModel}
+ * pour les réponses, {@link ReplayingChatModel} pour le routage, {@link ReplayingWebSearchEngine}),
+ * avec la latence -Drag.replay.latency.ms (premier token) et -Drag.replay.web.latency.ms, plus ou moins
+ * -Drag.replay.jitter.ms, puis un token toutes les -Drag.replay.token.ms : ni clé ni réseau, seul le coût
+ * du pipeline est mesuré.
+ * Avec -Drag.replay.record=true, les vrais services sont appelés (GEMINI_API_KEY, TAVILY_KEY)
+ * et leurs réponses ajoutées au fichier.
+ * <p>
+ * Arguments : [utilisateurs simultanés] [passages sur la liste], par défaut 4 1.
+ * Questions : -Drag.questions=fichier, sinon la ressource questions.txt.
+ * Avec -Drag.llm.rps (et -Drag.llm.burst, -Drag.llm.inflight), les appels bloquants au LM
+ * (routage) passent par {@link ScheduledChatModel}.
+ */
+public class LoadDriver {
+
+    public static void main(String[] args) throws Exception {
+        int users = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 1;
+        List<String> questions = questions();
+
+        RagMetrics metrics = RagMetrics.fromSystemProperties();
+        boolean record = Boolean.getBoolean("rag.replay.record");
+        Duration jitter = Duration.ofMillis(Long.getLong("rag.replay.jitter.ms", 100));
+        ReplayLog replayLog = ReplayLog.open(Paths.get(System.getProperty("rag.replay.file", "replay/echanges.tsv")));
+
+        // ============ SERVICES DISTANTS : ENREGISTRÉS OU REJOUÉS ============
+        ChatLanguageModel chatModel;
+        StreamingChatLanguageModel streamingChatModel;
+        WebSearchEngine webSearchEngine;
+        if (record) {
+            chatModel = new RecordingChatModel(GoogleAiGeminiChatModel.builder()
+                    .apiKey(System.getenv("GEMINI_API_KEY"))
+                    .modelName("gemini-2.0-flash-exp")
+                    .temperature(0.3)
+                    .build(), replayLog);
+            streamingChatModel = new RecordingStreamingChatModel(GoogleAiGeminiStreamingChatModel.builder()
+                    .apiKey(System.getenv("GEMINI_API_KEY"))
+                    .modelName("gemini-2.0-flash-exp")
+                    .temperature(0.3)
+                    .build(), replayLog);
+            webSearchEngine = new RecordingWebSearchEngine(TavilyWebSearchEngine.builder()
+                    .apiKey(System.getenv("TAVILY_KEY"))
+                    .build(), replayLog);
+        } else {
+            ReplayLog.Latency llmLatency =
+                    new ReplayLog.Latency(Duration.ofMillis(Long.getLong("rag.replay.latency.ms", 300)), jitter);
+            chatModel = new ReplayingChatModel(replayLog, llmLatency);
+            streamingChatModel = new ReplayingStreamingChatModel(replayLog, llmLatency,
+                    Duration.ofMillis(Long.getLong("rag.replay.token.ms", 10)));
+            webSearchEngine = new ReplayingWebSearchEngine(replayLog,
+                    new ReplayLog.Latency(Duration.ofMillis(Long.getLong("rag.replay.web.latency.ms", 500)), jitter));
+        }
+        ChatLanguageModel model = new InstrumentedChatModel(chatModel, metrics);
+        StreamingChatLanguageModel streamingModel = new InstrumentedStreamingChatModel(streamingChatModel, metrics);
+        // -Drag.llm.rps=... : appels au LM ordonnancés comme face au quota réel
+        ScheduledChatModel scheduledModel = null;
+        if (System.getProperty("rag.llm.rps") != null) {
+            scheduledModel = ScheduledChatModel.builder()
+                    .delegate(model)
+                    .requestsPerSecond(Double.parseDouble(System.getProperty("rag.llm.rps")))
+                    .burst(Integer.getInteger("rag.llm.burst", 4))
+                    .maxInFlight(Integer.getInteger("rag.llm.inflight", 4))
+                    .metrics(metrics)
+                    .build();
+            model = scheduledModel;
+        }
+
+        // ============ INGESTION DES 2 DOCUMENTS ============
+        BatchingEmbeddingModel embeddingModel = BatchingEmbeddingModel.fromSystemProperties();
+        Path path1 = Paths.get(LoadDriver.class.getResource("/rag.pdf").toURI());
+        Path path2 = Paths.get(LoadDriver.class.getResource("/autre-document.pdf").toURI());
+        Map<Path, PersistentEmbeddingIndex.Contents> ingested;
+        try (IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .maxSegmentSize(600)
+                .maxOverlap(0)
+                .build()) {
+            ingested = pipeline.ingestAll(List.of(path1, path2));
+        }
+
+        // ============ RETRIEVERS, ROUTAGE ET CONTEXTE ============
+        // Même chemin que Test3_Routage et Test5_Web, avec le Web comme troisième source. Les questions
+        // ambiguës sont classées par lots quand elles arrivent ensemble ; la composition d'un lot dépend
+        // de l'arrivée des questions : au rejeu, un lot absent du fichier n'a pas de décision, ses
+        // requêtes vont à toutes les sources sans être mémorisées
+        RagPipeline ragPipeline = RagPipeline.builder()
+                .metrics(metrics)
+                .embeddingModel(embeddingModel)
+                .streamingModel(streamingModel)
+                .document(path1, ingested.get(path1), RagPipeline.RAG_COURSE)
+                .document(path2, ingested.get(path2), RagPipeline.LANGCHAIN4J_COURSE)
+                .web(webSearchEngine)
+                .routingModel(model)
+                .batchRouting(true)
+                .build();
+
+        // ============ UTILISATEURS SIMULÉS ============
+        System.out.println(" " + users + " utilisateurs x " + rounds + " passage(s) x " + questions.size()
+                + " questions, " + (record ? "enregistrement" : "rejeu") + "...");
+        AtomicInteger errors = new AtomicInteger();
+        long start = System.nanoTime();
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int u = 0; u < users; u++) {
+                // Un assistant par utilisateur, avec sa mémoire, comme la console de Test3 et Test5.
+                // Mémoire sans résumé : un résumé asynchrone changerait les prompts d'une exécution
+                // à l'autre, et donc les clés du rejeu
+                StreamingAssistant assistant = ragPipeline.assistant(TokenBudgetChatMemory.builder()
+                        .id("user-" + u)
+                        .maxTokens(1500)
+                        .build());
+                clients.submit(() -> {
+                    for (int round = 0; round < rounds; round++) {
+                        for (String question : questions) {
+                            try {
+                                metrics.time(RagMetrics.Stage.TOTAL, () -> complete(assistant.chat(question)));
+                            } catch (RuntimeException e) {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        int total = users * rounds * questions.size();
+
+        // ============ RAPPORT ============
+        System.out.printf("%n %d questions en %.1f s : %.1f questions/s, %d erreurs%n",
+                total, seconds, total / seconds, errors.get());
+        System.out.println(metrics.snapshot().summary());
+        System.out.println(ragPipeline.stats());
+        if (scheduledModel != null) {
+            System.out.println(scheduledModel.stats());
+        }
+        System.out.println(embeddingModel.stats());
+        System.out.println(replayLog.stats());
+
+        replayLog.close();
+        embeddingModel.close();
+        metrics.payloadLog().close();
+    }
+
+    // Attend la fin du flux, sans affichage : TOTAL couvre la réponse complète
+    private static String complete(TokenStream tokenStream) {
+        CompletableFuture<String> done = new CompletableFuture<>();
+        tokenStream
+                .onPartialResponse(token -> {
+                })
+                .onCompleteResponse(response -> done.complete(response.aiMessage().text()))
+                .onError(done::completeExceptionally)
+                .start();
+        return done.join();
+    }
+
+    private static List<String> questions() throws IOException {
+        String file = System.getProperty("rag.questions");
+        List<String> lines;
+        if (file != null) {
+            lines = Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8);
+        } else {
+            URL resource = LoadDriver.class.getResource("/questions.txt");
+            try (InputStream in = resource.openStream()) {
+                lines = new String(in.readAllBytes(), StandardCharsets.UTF_8).lines().toList();
+            }
+        }
+        List<String> questions = new ArrayList<>();
+        for (String line : lines) {
+            String question = line.strip();
+            if (!question.isEmpty() && !question.startsWith("#")) {
+                questions.add(question);
+            }
+        }
+        return questions;
+    }
+}
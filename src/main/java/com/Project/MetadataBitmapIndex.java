@@ -0,0 +1,166 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.filter.Filter;
+import dev.langchain4j.store.embedding.filter.comparison.IsEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsGreaterThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsIn;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThan;
+import dev.langchain4j.store.embedding.filter.comparison.IsLessThanOrEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotEqualTo;
+import dev.langchain4j.store.embedding.filter.comparison.IsNotIn;
+import dev.langchain4j.store.embedding.filter.logical.And;
+import dev.langchain4j.store.embedding.filter.logical.Not;
+import dev.langchain4j.store.embedding.filter.logical.Or;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Index des métadonnées d'un magasin d'embeddings : pour chaque clé indexée et chaque valeur
+ * rencontrée, l'ensemble ({@link RoaringBitmap}) des positions des segments qui la portent.
+ * <p>
+ * Un filtre est traduit en ensemble de positions candidates avant tout produit scalaire :
+ * une comparaison sur une clé indexée réunit les ensembles des valeurs qui la satisfont
+ * (la valeur est testée par le filtre lui-même, la sémantique reste celle de LangChain4j),
+ * And, Or et Not deviennent intersection, union et complément. Une comparaison sur une clé non
+ * indexée rend la sélection inexacte : les candidats sont alors vérifiés un à un.
+ */
+final class MetadataBitmapIndex {
+
+    /**
+     * Clés indexées par défaut : celles posées par {@link IngestionPipeline}.
+     */
+    static final List<String> DEFAULT_KEYS = List.of(Document.FILE_NAME, StreamingPdfLoader.PAGE,
+            StreamingPdfLoader.SECTION, IngestionPipeline.INGESTED_AT);
+
+    /**
+     * Positions candidates ; si {@code exact} est faux, chacune doit encore passer le filtre.
+     */
+    record Selection(RoaringBitmap positions, boolean exact) {
+    }
+
+    private final Set<String> keys;
+    private final Map<String, Map<Object, RoaringBitmap>> values = new HashMap<>();
+    // Positions occupées par un segment : un filtre ne retient jamais un embedding sans segment
+    private RoaringBitmap withSegment = new RoaringBitmap();
+
+    MetadataBitmapIndex(Collection<String> keys) {
+        this.keys = Set.copyOf(keys);
+    }
+
+    // ============ MISE À JOUR ============
+
+    void add(int position, TextSegment segment) {
+        if (segment == null) {
+            return;
+        }
+        withSegment.add(position);
+        Map<String, Object> metadata = segment.metadata().toMap();
+        for (String key : keys) {
+            Object value = metadata.get(key);
+            if (value != null) {
+                values.computeIfAbsent(key, k -> new HashMap<>())
+                        .computeIfAbsent(value, v -> new RoaringBitmap())
+                        .add(position);
+            }
+        }
+    }
+
+    void remove(int position, TextSegment segment) {
+        if (segment == null) {
+            return;
+        }
+        withSegment.remove(position);
+        Map<String, Object> metadata = segment.metadata().toMap();
+        for (String key : keys) {
+            Object value = metadata.get(key);
+            Map<Object, RoaringBitmap> byValue = value == null ? null : values.get(key);
+            RoaringBitmap positions = byValue == null ? null : byValue.get(value);
+            if (positions != null) {
+                positions.remove(position);
+                if (positions.isEmpty()) {
+                    byValue.remove(value);
+                }
+            }
+        }
+    }
+
+    void clear() {
+        values.clear();
+        withSegment = new RoaringBitmap();
+    }
+
+    // ============ SÉLECTION ============
+
+    /**
+     * Positions qui peuvent satisfaire le filtre, ou null si l'index n'apporte rien (parcours complet).
+     */
+    Selection select(Filter filter) {
+        if (filter instanceof And and) {
+            Selection left = select(and.left());
+            Selection right = select(and.right());
+            if (left == null || right == null) {
+                Selection known = left == null ? right : left;
+                return known == null ? null : new Selection(known.positions(), false);
+            }
+            return new Selection(left.positions().and(right.positions()), left.exact() && right.exact());
+        }
+        if (filter instanceof Or or) {
+            Selection left = select(or.left());
+            Selection right = select(or.right());
+            if (left == null || right == null) {
+                return null;
+            }
+            return new Selection(left.positions().or(right.positions()), left.exact() && right.exact());
+        }
+        if (filter instanceof Not not) {
+            Selection inner = select(not.expression());
+            if (inner == null || !inner.exact()) {
+                return null;
+            }
+            return new Selection(withSegment.andNot(inner.positions()), true);
+        }
+
+        String key = keyOf(filter);
+        if (key == null || !keys.contains(key)) {
+            return null;
+        }
+        Map<Object, RoaringBitmap> byValue = values.getOrDefault(key, Map.of());
+        RoaringBitmap selected = new RoaringBitmap();
+        for (Map.Entry<Object, RoaringBitmap> entry : byValue.entrySet()) {
+            if (filter.test(new Metadata(Map.of(key, entry.getKey())))) {
+                selected = selected.or(entry.getValue());
+            }
+        }
+        // Segments sans la clé (IsNotEqualTo, IsNotIn les retiennent)
+        if (filter.test(new Metadata())) {
+            RoaringBitmap missing = withSegment;
+            for (RoaringBitmap positions : byValue.values()) {
+                missing = missing.andNot(positions);
+            }
+            selected = selected.or(missing);
+        }
+        return new Selection(selected, true);
+    }
+
+    private static String keyOf(Filter filter) {
+        return switch (filter) {
+            case IsEqualTo f -> f.key();
+            case IsNotEqualTo f -> f.key();
+            case IsGreaterThan f -> f.key();
+            case IsGreaterThanOrEqualTo f -> f.key();
+            case IsLessThan f -> f.key();
+            case IsLessThanOrEqualTo f -> f.key();
+            case IsIn f -> f.key();
+            case IsNotIn f -> f.key();
+            default -> null;
+        };
+    }
+}
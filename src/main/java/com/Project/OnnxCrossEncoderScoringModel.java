@@ -0,0 +1,148 @@
+package com.Project;
+
+import ai.djl.huggingface.tokenizers.Encoding;
+import ai.djl.huggingface.tokenizers.HuggingFaceTokenizer;
+import ai.djl.util.PairList;
+import ai.onnxruntime.OnnxTensor;
+import ai.onnxruntime.OrtEnvironment;
+import ai.onnxruntime.OrtException;
+import ai.onnxruntime.OrtSession;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.scoring.ScoringModel;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Cross-encodeur local (ONNX Runtime) : la question et le segment passent ensemble dans le
+ * modèle, qui rend un score de pertinence (logit) par paire. Plus précis qu'un cosinus
+ * d'embeddings, mais un passage du modèle par candidat : à réserver au re-classement.
+ * <p>
+ * Le modèle n'est pas livré avec le projet (par exemple ms-marco-MiniLM-L-6-v2 exporté en ONNX) :
+ * {@code -Drag.rerank.model=model.onnx}, et {@code -Drag.rerank.tokenizer=tokenizer.json}
+ * s'il n'est pas à côté du modèle. Chaque appel à {@link #scoreAll} est un seul lot.
+ */
+public class OnnxCrossEncoderScoringModel implements ScoringModel, AutoCloseable {
+
+    private final OrtEnvironment environment;
+    private final OrtSession session;
+    private final HuggingFaceTokenizer tokenizer;
+    private final boolean needsTokenTypes;
+
+    /**
+     * @param intraOpThreads threads ONNX Runtime par lot (les lots eux-mêmes peuvent tourner en parallèle)
+     */
+    public OnnxCrossEncoderScoringModel(Path model, Path tokenizer, int maxLength, int intraOpThreads) {
+        try {
+            this.environment = OrtEnvironment.getEnvironment();
+            OrtSession.SessionOptions options = new OrtSession.SessionOptions();
+            options.setIntraOpNumThreads(intraOpThreads);
+            options.setOptimizationLevel(OrtSession.SessionOptions.OptLevel.ALL_OPT);
+            this.session = environment.createSession(model.toString(), options);
+            this.needsTokenTypes = session.getInputNames().contains("token_type_ids");
+            this.tokenizer = HuggingFaceTokenizer.builder()
+                    .optTokenizerPath(tokenizer)
+                    .optTruncation(true)
+                    .optMaxLength(maxLength)
+                    .build();
+        } catch (OrtException e) {
+            throw new IllegalStateException("Modèle ONNX illisible : " + model, e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Cross-encodeur désigné par -Drag.rerank.model, ou vide si la propriété est absente.
+     */
+    public static Optional<OnnxCrossEncoderScoringModel> fromSystemProperties() {
+        String model = System.getProperty("rag.rerank.model");
+        if (model == null) {
+            return Optional.empty();
+        }
+        Path modelPath = Paths.get(model);
+        String tokenizer = System.getProperty("rag.rerank.tokenizer");
+        Path tokenizerPath = tokenizer != null ? Paths.get(tokenizer) : modelPath.resolveSibling("tokenizer.json");
+        if (!Files.exists(modelPath) || !Files.exists(tokenizerPath)) {
+            throw new IllegalArgumentException("Cross-encodeur introuvable : " + modelPath + ", " + tokenizerPath);
+        }
+        return Optional.of(new OnnxCrossEncoderScoringModel(modelPath, tokenizerPath,
+                Integer.getInteger("rag.rerank.maxLength", 512),
+                Integer.getInteger("rag.rerank.threads", 1)));
+    }
+
+    @Override
+    public Response<List<Double>> scoreAll(List<TextSegment> segments, String query) {
+        if (segments.isEmpty()) {
+            return Response.from(List.of());
+        }
+
+        // ============ TOKENISATION DES PAIRES ============
+        PairList<String, String> pairs = new PairList<>(segments.size());
+        segments.forEach(segment -> pairs.add(query, segment.text()));
+        Encoding[] encodings = tokenizer.batchEncode(pairs);
+        int length = 0;
+        for (Encoding encoding : encodings) {
+            length = Math.max(length, encoding.getIds().length);
+        }
+        // Remplissage à la plus longue paire du lot, pas à maxLength
+        long[][] ids = new long[encodings.length][length];
+        long[][] mask = new long[encodings.length][length];
+        long[][] types = new long[encodings.length][length];
+        for (int i = 0; i < encodings.length; i++) {
+            System.arraycopy(encodings[i].getIds(), 0, ids[i], 0, encodings[i].getIds().length);
+            System.arraycopy(encodings[i].getAttentionMask(), 0, mask[i], 0, encodings[i].getAttentionMask().length);
+            System.arraycopy(encodings[i].getTypeIds(), 0, types[i], 0, encodings[i].getTypeIds().length);
+        }
+
+        // ============ INFÉRENCE ============
+        Map<String, OnnxTensor> inputs = new HashMap<>();
+        try {
+            inputs.put("input_ids", OnnxTensor.createTensor(environment, ids));
+            inputs.put("attention_mask", OnnxTensor.createTensor(environment, mask));
+            if (needsTokenTypes) {
+                inputs.put("token_type_ids", OnnxTensor.createTensor(environment, types));
+            }
+            try (OrtSession.Result result = session.run(inputs)) {
+                return Response.from(logits(result.get(0).getValue(), segments.size()));
+            }
+        } catch (OrtException e) {
+            throw new IllegalStateException("Échec de l'inférence du cross-encodeur", e);
+        } finally {
+            inputs.values().forEach(OnnxTensor::close);
+        }
+    }
+
+    // Sortie [lot, 1] (un logit de pertinence) ou [lot]
+    private static List<Double> logits(Object output, int expected) {
+        List<Double> scores = new ArrayList<>(expected);
+        if (output instanceof float[][] matrix && matrix.length == expected && matrix[0].length == 1) {
+            for (float[] row : matrix) {
+                scores.add((double) row[0]);
+            }
+        } else if (output instanceof float[] vector && vector.length == expected) {
+            for (float score : vector) {
+                scores.add((double) score);
+            }
+        } else {
+            throw new IllegalStateException("Sortie inattendue pour un cross-encodeur : "
+                    + output.getClass().getSimpleName());
+        }
+        return scores;
+    }
+
+    @Override
+    public void close() throws OrtException {
+        tokenizer.close();
+        session.close();
+    }
+}
@@ -0,0 +1,300 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Metadata;
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Index d'embeddings persistant : les segments et leurs vecteurs sont écrits dans un fichier
+ * binaire compact, relu par projection mémoire (NIO) au démarrage suivant.
+ * Le fichier est nommé d'après un hash du chemin absolu du document, suivi d'un hash de son contenu
+ * et des paramètres de découpage : un document modifié est donc le seul à être ré-ingéré (voir
+ * {@link IngestionPipeline}), et deux documents de même nom dans des répertoires différents ont
+ * chacun leur index.
+ */
+public final class PersistentEmbeddingIndex {
+
+    private static final int MAGIC = 0x52414731;   // "RAG1"
+    private static final int VERSION = 1;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_INTEGER = 1;
+    private static final byte TYPE_LONG = 2;
+    private static final byte TYPE_FLOAT = 3;
+    private static final byte TYPE_DOUBLE = 4;
+
+    /**
+     * Segments d'un document et embeddings correspondants (même ordre).
+     */
+    public record Contents(List<TextSegment> segments, List<Embedding> embeddings) {
+    }
+
+    private PersistentEmbeddingIndex() {
+    }
+
+    /**
+     * Répertoire du cache, modifiable avec -Drag.cache.dir=...
+     */
+    public static Path defaultCacheDirectory() {
+        return Paths.get(System.getProperty("rag.cache.dir", ".rag-cache"));
+    }
+
+    /**
+     * Décrit les paramètres du splitter ; ils font partie de la clé du cache.
+     */
+    public static String splitterSettings(int maxSegmentSize, int maxOverlap) {
+        return "recursive(" + maxSegmentSize + "," + maxOverlap + ")";
+    }
+
+    /**
+     * Relit l'index d'un document s'il existe pour ce contenu et ces paramètres.
+     */
+    public static Optional<Contents> load(Path document,
+                                          String settings,
+                                          EmbeddingModel embeddingModel,
+                                          Path cacheDirectory) throws IOException {
+        Path file = indexFile(document, settings, embeddingModel, cacheDirectory);
+        if (!Files.exists(file)) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(read(file));
+        } catch (IOException | RuntimeException e) {
+            // Fichier tronqué ou d'une autre version : on le reconstruira
+            System.out.println(" Index illisible, reconstruction : " + file.getFileName());
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Écrit l'index d'un document et supprime les index obsolètes du même fichier.
+     */
+    public static void save(Path document,
+                            String settings,
+                            EmbeddingModel embeddingModel,
+                            Path cacheDirectory,
+                            Contents contents) throws IOException {
+        Files.createDirectories(cacheDirectory);
+        Path file = indexFile(document, settings, embeddingModel, cacheDirectory);
+        deleteStaleIndexes(document, cacheDirectory, file);
+
+        // Écriture dans un fichier temporaire puis renommage, pour ne jamais laisser d'index à moitié écrit
+        Path tmp = Files.createTempFile(cacheDirectory, file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            write(out, contents);
+        }
+        Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Supprime les index d'un document retiré du corpus.
+     */
+    public static void delete(Path document, Path cacheDirectory) throws IOException {
+        if (Files.isDirectory(cacheDirectory)) {
+            deleteStaleIndexes(document, cacheDirectory, null);
+        }
+    }
+
+    static Path indexFile(Path document,
+                          String settings,
+                          EmbeddingModel embeddingModel,
+                          Path cacheDirectory) throws IOException {
+        return cacheDirectory.resolve(documentKey(document) + "-" + contentKey(document, settings, embeddingModel) + ".idx");
+    }
+
+    /**
+     * Hash du chemin absolu : préfixe des index d'un document, sans caractère spécial du nom de fichier.
+     */
+    static String documentKey(Path document) {
+        MessageDigest digest = sha256();
+        digest.update(document.toAbsolutePath().normalize().toString().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    /**
+     * SHA-256 du contenu du fichier, des paramètres de découpage et du modèle d'embeddings.
+     */
+    static String contentKey(Path document, String settings, EmbeddingModel embeddingModel) throws IOException {
+        MessageDigest digest = sha256();
+        byte[] buffer = new byte[64 * 1024];
+        try (InputStream in = Files.newInputStream(document)) {
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                digest.update(buffer, 0, read);
+            }
+        }
+        digest.update(settings.getBytes(StandardCharsets.UTF_8));
+        digest.update(modelIdentity(embeddingModel).getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest.digest(), 0, 8);
+    }
+
+    // Un BatchingEmbeddingModel produit les embeddings de son modèle : les index restent valables
+    private static String modelIdentity(EmbeddingModel embeddingModel) {
+        return embeddingModel instanceof BatchingEmbeddingModel batching
+                ? batching.identity()
+                : embeddingModel.getClass().getName();
+    }
+
+    // Comparaison littérale du préfixe : aucun nom de fichier n'est interprété comme un motif
+    private static void deleteStaleIndexes(Path document, Path cacheDirectory, Path current) throws IOException {
+        String prefix = documentKey(document) + "-";
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(cacheDirectory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                if (name.startsWith(prefix) && name.endsWith(".idx") && !file.equals(current)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // ============ FORMAT BINAIRE ============
+    // en-tête : magic, version, nombre de segments, dimension
+    // puis tous les vecteurs à la suite (float), puis les segments (texte + métadonnées)
+
+    private static void write(DataOutputStream out, Contents contents) throws IOException {
+        List<TextSegment> segments = contents.segments();
+        List<Embedding> embeddings = contents.embeddings();
+        int dimension = embeddings.isEmpty() ? 0 : embeddings.get(0).dimension();
+
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(segments.size());
+        out.writeInt(dimension);
+
+        for (Embedding embedding : embeddings) {
+            for (float value : embedding.vector()) {
+                out.writeFloat(value);
+            }
+        }
+
+        for (TextSegment segment : segments) {
+            writeSegment(out, segment);
+        }
+    }
+
+    private static Contents read(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Format d'index inconnu : " + file);
+            }
+            int count = buffer.getInt();
+            int dimension = buffer.getInt();
+
+            List<Embedding> embeddings = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                float[] vector = new float[dimension];
+                buffer.asFloatBuffer().get(vector);
+                buffer.position(buffer.position() + dimension * Float.BYTES);
+                embeddings.add(Embedding.from(vector));
+            }
+
+            List<TextSegment> segments = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                segments.add(readSegment(buffer));
+            }
+            return new Contents(segments, embeddings);
+        }
+    }
+
+    /**
+     * Texte et métadonnées typées d'un segment (format partagé avec {@link HnswEmbeddingStore}).
+     */
+    static void writeSegment(DataOutputStream out, TextSegment segment) throws IOException {
+        writeString(out, segment.text());
+        Map<String, Object> metadata = segment.metadata().toMap();
+        out.writeInt(metadata.size());
+        for (Map.Entry<String, Object> entry : metadata.entrySet()) {
+            writeString(out, entry.getKey());
+            writeValue(out, entry.getValue());
+        }
+    }
+
+    static TextSegment readSegment(ByteBuffer buffer) throws IOException {
+        String text = readString(buffer);
+        int entries = buffer.getInt();
+        Map<String, Object> metadata = new HashMap<>();
+        for (int j = 0; j < entries; j++) {
+            String key = readString(buffer);
+            metadata.put(key, readValue(buffer));
+        }
+        return TextSegment.from(text, Metadata.from(metadata));
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value instanceof Integer i) {
+            out.writeByte(TYPE_INTEGER);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(TYPE_LONG);
+            out.writeLong(l);
+        } else if (value instanceof Float f) {
+            out.writeByte(TYPE_FLOAT);
+            out.writeFloat(f);
+        } else if (value instanceof Double d) {
+            out.writeByte(TYPE_DOUBLE);
+            out.writeDouble(d);
+        } else {
+            out.writeByte(TYPE_STRING);
+            writeString(out, String.valueOf(value));
+        }
+    }
+
+    private static Object readValue(ByteBuffer buffer) throws IOException {
+        byte type = buffer.get();
+        return switch (type) {
+            case TYPE_INTEGER -> buffer.getInt();
+            case TYPE_LONG -> buffer.getLong();
+            case TYPE_FLOAT -> buffer.getFloat();
+            case TYPE_DOUBLE -> buffer.getDouble();
+            case TYPE_STRING -> readString(buffer);
+            default -> throw new IOException("Type de métadonnée inconnu : " + type);
+        };
+    }
+
+    static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,482 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Magasin d'embeddings quantifiés : seuls des codes compacts restent dans le tas, les vecteurs
+ * complets (float) sont écrits dans un fichier projeté en mémoire.
+ * <p>
+ * - INT8 : un octet par composante et une échelle par vecteur (environ 4 fois moins de mémoire) ;
+ * - BINARY : un bit de signe par composante, comparé par distance de Hamming (32 fois moins).
+ * <p>
+ * La recherche parcourt les codes pour choisir {@code maxResults x rescoreFactor} candidats,
+ * puis recalcule leur similarité exacte à partir des vecteurs complets du fichier : seuls ces
+ * quelques vecteurs sont lus. Les scores sont ceux de {@link VectorEmbeddingStore}.
+ * Une seule projection : jusqu'à 2 Go de vecteurs (1,4 million en dimension 384).
+ * <p>
+ * Comme dans {@link VectorEmbeddingStore}, les métadonnées usuelles sont indexées
+ * ({@link MetadataBitmapIndex}) : une recherche filtrée ne parcourt que les codes des segments retenus.
+ */
+public class QuantizedEmbeddingStore implements ReplaceableEmbeddingStore, AutoCloseable {
+
+    public enum Quantization {
+        INT8(4),
+        BINARY(20);
+
+        private final int defaultRescoreFactor;
+
+        Quantization(int defaultRescoreFactor) {
+            this.defaultRescoreFactor = defaultRescoreFactor;
+        }
+
+        public int defaultRescoreFactor() {
+            return defaultRescoreFactor;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Quantization quantization;
+    private final int rescoreFactor;
+    private final FileChannel channel;
+    private FloatBuffer fullVectors = FloatBuffer.allocate(0);
+
+    private int dimension = -1;
+    private int words;            // longs par vecteur en BINARY
+    private int size;
+    private byte[] codes = new byte[0];
+    private float[] scales = new float[0];
+    private long[] bits = new long[0];
+    private String[] ids = new String[0];
+    private TextSegment[] segments = new TextSegment[0];
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final MetadataBitmapIndex index = new MetadataBitmapIndex(MetadataBitmapIndex.DEFAULT_KEYS);
+
+    /**
+     * Vecteurs complets dans un fichier temporaire supprimé à l'arrêt.
+     */
+    public QuantizedEmbeddingStore(Quantization quantization) throws IOException {
+        this(quantization, quantization.defaultRescoreFactor);
+    }
+
+    public QuantizedEmbeddingStore(Quantization quantization, int rescoreFactor) throws IOException {
+        this(quantization, temporaryFile(), rescoreFactor);
+    }
+
+    /**
+     * @param file          fichier des vecteurs complets (écrasé)
+     * @param rescoreFactor candidats recalculés exactement, en multiple de maxResults
+     */
+    public QuantizedEmbeddingStore(Quantization quantization, Path file, int rescoreFactor) throws IOException {
+        this.quantization = quantization;
+        this.rescoreFactor = rescoreFactor;
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+    }
+
+    private static Path temporaryFile() throws IOException {
+        Path file = Files.createTempFile("rag-vectors", ".f32");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(segment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, segments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        if (segments != null && segments.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Autant de segments que d'embeddings sont attendus");
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < embeddings.size(); i++) {
+                insert(ids.get(i), embeddings.get(i).vector(), segments == null ? null : segments.get(i));
+            }
+            remap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retire oldIds et ajoute les nouveaux embeddings sous un seul verrou d'écriture.
+     */
+    @Override
+    public void replaceAll(Collection<String> oldIds,
+                           List<String> ids,
+                           List<Embedding> embeddings,
+                           List<TextSegment> segments) {
+        if (segments != null && segments.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Autant de segments que d'embeddings sont attendus");
+        }
+        lock.writeLock().lock();
+        try {
+            for (String id : oldIds) {
+                removeAt(id);
+            }
+            for (int i = 0; i < embeddings.size(); i++) {
+                insert(ids.get(i), embeddings.get(i).vector(), segments == null ? null : segments.get(i));
+            }
+            remap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(String id, float[] vector, TextSegment segment) throws IOException {
+        if (dimension == -1) {
+            dimension = vector.length;
+            words = (dimension + 63) / 64;
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("Dimension " + vector.length + " au lieu de " + dimension);
+        }
+
+        Integer existing = positions.get(id);
+        int position = existing != null ? existing : size++;
+        ensureCapacity(size);
+
+        float[] normalized = VectorMath.normalize(vector);
+        encode(position, normalized);
+        writeFullVector(position, normalized);
+        index.remove(position, segments[position]);
+        index.add(position, segment);
+        ids[position] = id;
+        segments[position] = segment;
+        positions.put(id, position);
+    }
+
+    // ============ QUANTIFICATION ============
+
+    private void encode(int position, float[] vector) {
+        if (quantization == Quantization.INT8) {
+            float max = 0;
+            for (float value : vector) {
+                max = Math.max(max, Math.abs(value));
+            }
+            float scale = max == 0 ? 1 : max / 127;
+            int offset = position * dimension;
+            for (int i = 0; i < dimension; i++) {
+                codes[offset + i] = (byte) Math.round(vector[i] / scale);
+            }
+            scales[position] = scale;
+        } else {
+            encodeSigns(vector, bits, position * words);
+        }
+    }
+
+    private void encodeSigns(float[] vector, long[] target, int offset) {
+        Arrays.fill(target, offset, offset + words, 0L);
+        for (int i = 0; i < dimension; i++) {
+            if (vector[i] > 0) {
+                target[offset + i / 64] |= 1L << (i % 64);
+            }
+        }
+    }
+
+    // Similarité approchée : plus grand = plus proche
+    private float approximateScore(int position, float[] query, long[] queryBits) {
+        if (quantization == Quantization.INT8) {
+            return VectorMath.dot(codes, position * dimension, query, dimension) * scales[position];
+        }
+        int offset = position * words;
+        int differences = 0;
+        for (int w = 0; w < words; w++) {
+            differences += Long.bitCount(bits[offset + w] ^ queryBits[w]);
+        }
+        return -differences;
+    }
+
+    // ============ VECTEURS COMPLETS (FICHIER PROJETÉ) ============
+
+    private void writeFullVector(int position, float[] vector) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(dimension * Float.BYTES);
+        buffer.asFloatBuffer().put(vector);
+        long offset = (long) position * dimension * Float.BYTES;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+    }
+
+    private void remap() throws IOException {
+        long bytes = (long) size * Math.max(dimension, 0) * Float.BYTES;
+        fullVectors = bytes == 0
+                ? FloatBuffer.allocate(0)
+                : channel.map(FileChannel.MapMode.READ_ONLY, 0, bytes).asFloatBuffer();
+    }
+
+    private float[] fullVector(int position) {
+        float[] vector = new float[dimension];
+        fullVectors.get(position * dimension, vector);
+        return vector;
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        // Plafond calculé sur la dimension : les vecteurs complets sont lus à l'index position * dimension
+        int capacity = VectorEmbeddingStore.grownCapacity(ids.length, required, dimension);
+        if (quantization == Quantization.INT8) {
+            codes = Arrays.copyOf(codes, capacity * dimension);
+            scales = Arrays.copyOf(scales, capacity);
+        } else {
+            bits = Arrays.copyOf(bits, capacity * words);
+        }
+        ids = Arrays.copyOf(ids, capacity);
+        segments = Arrays.copyOf(segments, capacity);
+    }
+
+    // ============ SUPPRESSION ============
+
+    @Override
+    public void removeAll(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idsToRemove) {
+                removeAt(id);
+            }
+            remap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Sélection et suppression sous le même verrou : un segment ajouté entre les deux n'échappe pas au filtre
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            List<String> matching = new ArrayList<>();
+            forEachCandidate(filter, i -> matching.add(ids[i]));
+            for (String id : matching) {
+                removeAt(id);
+            }
+            remap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(ids, 0, size, null);
+            Arrays.fill(segments, 0, size, null);
+            positions.clear();
+            index.clear();
+            size = 0;
+            channel.truncate(0);
+            remap();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Le dernier élément vient boucher le trou, dans les codes comme dans le fichier
+    private void removeAt(String id) throws IOException {
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return;
+        }
+        int last = --size;
+        index.remove(position, segments[position]);
+        if (position != last) {
+            index.remove(last, segments[last]);
+            index.add(position, segments[last]);
+            if (quantization == Quantization.INT8) {
+                System.arraycopy(codes, last * dimension, codes, position * dimension, dimension);
+                scales[position] = scales[last];
+            } else {
+                System.arraycopy(bits, last * words, bits, position * words, words);
+            }
+            writeFullVector(position, fullVector(last));
+            ids[position] = ids[last];
+            segments[position] = segments[last];
+            positions.put(ids[position], position);
+        }
+        ids[last] = null;
+        segments[last] = null;
+    }
+
+    // ============ RECHERCHE ============
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = VectorMath.normalize(request.queryEmbedding().vector());
+        Filter filter = request.filter();
+        float minCosine = (float) (2 * request.minScore() - 1);
+
+        lock.readLock().lock();
+        try {
+            if (size == 0 || request.maxResults() <= 0) {
+                return new EmbeddingSearchResult<>(Collections.emptyList());
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Dimension " + query.length + " au lieu de " + dimension);
+            }
+            long[] queryBits = null;
+            if (quantization == Quantization.BINARY) {
+                queryBits = new long[words];
+                encodeSigns(query, queryBits, 0);
+            }
+
+            // 1. Candidats d'après les codes
+            TopK candidates = new TopK(Math.min(size, request.maxResults() * rescoreFactor));
+            long[] signs = queryBits;
+            IntConsumer approximate = i -> {
+                float score = approximateScore(i, query, signs);
+                if (score > candidates.threshold()) {
+                    candidates.offer(i, score);
+                }
+            };
+            if (filter == null) {
+                for (int i = 0; i < size; i++) {
+                    approximate.accept(i);
+                }
+            } else {
+                forEachCandidate(filter, approximate);
+            }
+            int count = candidates.size();
+            int[] positionsFound = new int[count];
+            candidates.drainDescending(positionsFound, new float[count]);
+
+            // 2. Similarité exacte des candidats, à partir des vecteurs complets
+            TopK best = new TopK(Math.max(1, Math.min(request.maxResults(), count)));
+            for (int position : positionsFound) {
+                float cosine = VectorMath.dot(fullVector(position), 0, query, dimension);
+                if (cosine >= minCosine && cosine > best.threshold()) {
+                    best.offer(position, cosine);
+                }
+            }
+            return new EmbeddingSearchResult<>(toMatches(best));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Positions qui satisfont le filtre, comme dans VectorEmbeddingStore
+    private void forEachCandidate(Filter filter, IntConsumer action) {
+        MetadataBitmapIndex.Selection selection = index.select(filter);
+        if (selection == null) {
+            for (int i = 0; i < size; i++) {
+                if (segments[i] != null && filter.test(segments[i].metadata())) {
+                    action.accept(i);
+                }
+            }
+        } else if (selection.exact()) {
+            selection.positions().forEach(action);
+        } else {
+            selection.positions().forEach(i -> {
+                if (filter.test(segments[i].metadata())) {
+                    action.accept(i);
+                }
+            });
+        }
+    }
+
+    private List<EmbeddingMatch<TextSegment>> toMatches(TopK topK) {
+        int count = topK.size();
+        int[] best = new int[count];
+        float[] cosines = new float[count];
+        topK.drainDescending(best, cosines);
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int position = best[i];
+            matches.add(new EmbeddingMatch<>(
+                    VectorMath.relevanceScore(cosines[i]),
+                    ids[position],
+                    Embedding.from(fullVector(position)),
+                    segments[position]));
+        }
+        return matches;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Octets de codes gardés dans le tas par vecteur (contre 4 x dimension en float).
+     */
+    public int bytesPerVector() {
+        return quantization == Quantization.INT8 ? dimension + Float.BYTES : words * Long.BYTES;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,282 @@
+package com.Project;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Mesures du chemin RAG : un {@link LatencyHistogram} par étape, nombre de tokens du LM et
+ * distribution des scores des segments retrouvés.
+ * <p>
+ * Les étapes sont mesurées par les décorateurs Instrumented* (modèle de chat, modèle d'embeddings,
+ * magasin, routeur) ; l'étape TOTAL est mesurée par l'appelant avec {@link #time}.
+ * {@link #snapshot()} donne une vue cohérente, exportable au format texte Prometheus
+ * sur /metrics (voir {@link #serve(int)}).
+ */
+public class RagMetrics {
+
+    public enum Stage {
+        ROUTING("routing"),
+        QUERY_EMBEDDING("query_embedding"),
+        VECTOR_SEARCH("vector_search"),
+        LLM_QUEUE("llm_queue_wait"),
+        LLM("llm"),
+        FIRST_TOKEN("llm_first_token"),
+        TOTAL("total");
+
+        private final String label;
+
+        Stage(String label) {
+            this.label = label;
+        }
+
+        public String label() {
+            return label;
+        }
+    }
+
+    private static final int SCORE_BUCKETS = 20;   // pas de 0,05 entre 0 et 1
+
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+    private final LongAdder llmCalls = new LongAdder();
+    private final LongAdder llmErrors = new LongAdder();
+    private final LongAdder inputTokens = new LongAdder();
+    private final LongAdder outputTokens = new LongAdder();
+    private final AtomicInteger llmQueueDepth = new AtomicInteger();
+    private final AtomicLongArray scoreBuckets = new AtomicLongArray(SCORE_BUCKETS);
+    private final SampledPayloadLog payloadLog;
+
+    public RagMetrics() {
+        this(null);
+    }
+
+    /**
+     * @param payloadLog journal échantillonné des requêtes et réponses du LM, ou null
+     */
+    public RagMetrics(SampledPayloadLog payloadLog) {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+        this.payloadLog = payloadLog;
+    }
+
+    /**
+     * Mesures configurées par les propriétés système : -Drag.log.payloads=&lt;taux&gt; pour le journal
+     * échantillonné, -Drag.metrics.port=&lt;port&gt; pour exposer /metrics.
+     */
+    public static RagMetrics fromSystemProperties() throws IOException {
+        RagMetrics metrics = new RagMetrics(SampledPayloadLog.fromSystemProperties());
+        String port = System.getProperty("rag.metrics.port");
+        if (port != null) {
+            metrics.serve(Integer.parseInt(port));
+            System.out.println(" Mesures disponibles sur http://localhost:" + port + "/metrics");
+        }
+        return metrics;
+    }
+
+    // ============ ENREGISTREMENT ============
+
+    public void record(Stage stage, long nanos) {
+        latencies.get(stage).record(nanos);
+    }
+
+    public <T> T time(Stage stage, Supplier<T> action) {
+        long start = System.nanoTime();
+        try {
+            return action.get();
+        } finally {
+            record(stage, System.nanoTime() - start);
+        }
+    }
+
+    public void recordLlmCall(long nanos, TokenUsage tokenUsage) {
+        record(Stage.LLM, nanos);
+        llmCalls.increment();
+        if (tokenUsage != null) {
+            if (tokenUsage.inputTokenCount() != null) {
+                inputTokens.add(tokenUsage.inputTokenCount());
+            }
+            if (tokenUsage.outputTokenCount() != null) {
+                outputTokens.add(tokenUsage.outputTokenCount());
+            }
+        }
+    }
+
+    /**
+     * Appel au LM terminé en erreur : sa durée compte dans l'étape LLM, mais pas dans les appels réussis.
+     */
+    public void recordLlmError(long nanos) {
+        record(Stage.LLM, nanos);
+        llmErrors.increment();
+    }
+
+    /**
+     * Appel au LM mis en file par {@link ScheduledChatModel}.
+     */
+    public void llmCallQueued() {
+        llmQueueDepth.incrementAndGet();
+    }
+
+    /**
+     * Appel au LM sorti de la file après {@code waitNanos} d'attente.
+     */
+    public void llmCallDequeued(long waitNanos) {
+        llmQueueDepth.decrementAndGet();
+        record(Stage.LLM_QUEUE, waitNanos);
+    }
+
+    /**
+     * Score de pertinence d'un segment retrouvé, entre 0 et 1.
+     */
+    public void recordScore(double score) {
+        int bucket = (int) Math.floor(score * SCORE_BUCKETS);
+        scoreBuckets.incrementAndGet(Math.max(0, Math.min(SCORE_BUCKETS - 1, bucket)));
+    }
+
+    /**
+     * Journal échantillonné des requêtes et réponses, ou null s'il n'y en a pas.
+     */
+    public SampledPayloadLog payloadLog() {
+        return payloadLog;
+    }
+
+    // ============ LECTURE ET EXPORT ============
+
+    public record Snapshot(Map<Stage, LatencyHistogram.Snapshot> latencies,
+                           long llmCalls,
+                           long llmErrors,
+                           long inputTokens,
+                           long outputTokens,
+                           int llmQueueDepth,
+                           long[] scoreBuckets,
+                           long payloadsWritten,
+                           long payloadsDropped) {
+
+        /**
+         * Format texte Prometheus (latences en secondes).
+         */
+        public String toPrometheus() {
+            StringBuilder out = new StringBuilder();
+            out.append("# TYPE rag_stage_latency_seconds summary\n");
+            latencies.forEach((stage, h) -> {
+                String label = "stage=\"" + stage.label() + "\"";
+                quantile(out, label, "0.5", h.p50());
+                quantile(out, label, "0.9", h.p90());
+                quantile(out, label, "0.99", h.p99());
+                quantile(out, label, "0.999", h.p999());
+                line(out, "rag_stage_latency_seconds_sum{" + label + "}", h.sumMillis() / 1000);
+                line(out, "rag_stage_latency_seconds_count{" + label + "}", h.count());
+                line(out, "rag_stage_latency_seconds_max{" + label + "}", h.maxMillis() / 1000);
+            });
+            out.append("# TYPE rag_llm_calls_total counter\n");
+            line(out, "rag_llm_calls_total", llmCalls);
+            out.append("# TYPE rag_llm_errors_total counter\n");
+            line(out, "rag_llm_errors_total", llmErrors);
+            out.append("# TYPE rag_llm_tokens_total counter\n");
+            line(out, "rag_llm_tokens_total{direction=\"input\"}", inputTokens);
+            line(out, "rag_llm_tokens_total{direction=\"output\"}", outputTokens);
+            out.append("# TYPE rag_llm_queue_depth gauge\n");
+            line(out, "rag_llm_queue_depth", llmQueueDepth);
+            out.append("# TYPE rag_retrieval_score histogram\n");
+            long cumulative = 0;
+            for (int i = 0; i < scoreBuckets.length; i++) {
+                cumulative += scoreBuckets[i];
+                String le = String.format(Locale.ROOT, "%.2f", (i + 1) / (double) scoreBuckets.length);
+                line(out, "rag_retrieval_score_bucket{le=\"" + le + "\"}", cumulative);
+            }
+            line(out, "rag_retrieval_score_bucket{le=\"+Inf\"}", cumulative);
+            line(out, "rag_retrieval_score_count", cumulative);
+            out.append("# TYPE rag_payload_log_total counter\n");
+            line(out, "rag_payload_log_total{outcome=\"written\"}", payloadsWritten);
+            line(out, "rag_payload_log_total{outcome=\"dropped\"}", payloadsDropped);
+            return out.toString();
+        }
+
+        /**
+         * Résumé lisible pour la console.
+         */
+        public String summary() {
+            StringBuilder out = new StringBuilder(" Mesures :\n");
+            latencies.forEach((stage, h) -> {
+                if (h.count() > 0) {
+                    out.append(String.format("   %-16s n=%-5d p50=%8.1f ms  p99=%8.1f ms  max=%8.1f ms%n",
+                            stage.label(), h.count(), h.p50(), h.p99(), h.maxMillis()));
+                }
+            });
+            out.append(String.format("   LM : %d appels, %d erreurs, %d tokens en entrée, %d en sortie%n",
+                    llmCalls, llmErrors, inputTokens, outputTokens));
+            long scores = 0;
+            for (long count : scoreBuckets) {
+                scores += count;
+            }
+            out.append(String.format("   %d segments retrouvés", scores));
+            return out.toString();
+        }
+
+        private static void quantile(StringBuilder out, String label, String quantile, double millis) {
+            line(out, "rag_stage_latency_seconds{" + label + ",quantile=\"" + quantile + "\"}", millis / 1000);
+        }
+
+        private static void line(StringBuilder out, String name, double value) {
+            out.append(name).append(' ').append(String.format(Locale.ROOT, "%.6f", value)).append('\n');
+        }
+
+        private static void line(StringBuilder out, String name, long value) {
+            out.append(name).append(' ').append(value).append('\n');
+        }
+    }
+
+    public Snapshot snapshot() {
+        Map<Stage, LatencyHistogram.Snapshot> snapshots = new EnumMap<>(Stage.class);
+        latencies.forEach((stage, histogram) -> snapshots.put(stage, histogram.snapshot()));
+        long[] scores = new long[SCORE_BUCKETS];
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] = scoreBuckets.get(i);
+        }
+        return new Snapshot(snapshots, llmCalls.sum(), llmErrors.sum(), inputTokens.sum(), outputTokens.sum(), llmQueueDepth.get(), scores,
+                payloadLog == null ? 0 : payloadLog.written(),
+                payloadLog == null ? 0 : payloadLog.dropped());
+    }
+
+    /**
+     * Expose GET /metrics sur un serveur HTTP du JDK (thread démon).
+     */
+    public HttpServer serve(int port) throws IOException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+        server.setExecutor(Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics");
+            thread.setDaemon(true);
+            return thread;
+        }));
+        server.createContext("/metrics", this::handle);
+        server.start();
+        return server;
+    }
+
+    /**
+     * Gestionnaire de /metrics, à ajouter à un serveur existant.
+     */
+    public void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = snapshot().toPrometheus().getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+import dev.langchain4j.rag.DefaultRetrievalAugmentor;
+import dev.langchain4j.rag.RetrievalAugmentor;
+import dev.langchain4j.rag.content.aggregator.DefaultContentAggregator;
+import dev.langchain4j.rag.content.retriever.ContentRetriever;
+import dev.langchain4j.rag.content.retriever.WebSearchContentRetriever;
+import dev.langchain4j.rag.query.router.DefaultQueryRouter;
+import dev.langchain4j.rag.query.router.LanguageModelQueryRouter;
+import dev.langchain4j.rag.query.router.QueryRouter;
+import dev.langchain4j.service.AiServices;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.web.search.WebSearchEngine;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executors;
+
+import static dev.langchain4j.store.embedding.filter.MetadataFilterBuilder.metadataKey;
+
+/**
+ * Chemin RAG commun à Test3_Routage, Test5_Web et LoadDriver, de la question au prompt :
+ * <p>
+ * - un seul magasin ({@link EmbeddingStores}) pour tous les documents, et par document un
+ *   {@link HybridContentRetriever} filtré sur le nom de fichier ;
+ * - en option la recherche Web ; chaque source a son échéance ({@link DeadlineContentRetriever}) ;
+ * - avec un modèle de routage : décision locale par {@link EmbeddingQueryRouter}, le LM pour les
+ *   questions ambiguës (un appel par question, ou par lots), décisions mémorisées par
+ *   {@link CachingQueryRouter} ; sans modèle de routage, chaque question va à toutes les sources ;
+ * - avec -Drag.rerank.model=..., 50 candidats par source re-classés par un cross-encodeur local ;
+ * - contexte compressé ({@link CompressingContentAggregator}), sources interrogées en parallèle.
+ * <p>
+ * Les assistants en streaming se créent avec {@link #assistant(ChatMemory)}, un par mémoire.
+ */
+public class RagPipeline {
+
+    public static final String RAG_COURSE =
+            "Support de cours sur le RAG (Retrieval Augmented Generation) et le fine-tuning en intelligence artificielle";
+    public static final String LANGCHAIN4J_COURSE =
+            "Support de cours sur LangChain4j : présentation, modèles, AiServices, extraction de données, "
+                    + "outils, modération et streaming";
+    private static final String WEB = "Actualité et questions générales, hors des supports de cours";
+
+    private static final Duration DOCUMENT_DEADLINE = Duration.ofSeconds(2);
+
+    private record Source(PersistentEmbeddingIndex.Contents contents, String description) {
+    }
+
+    private final StreamingChatLanguageModel streamingModel;
+    private final CachedEmbeddingModel queryEmbeddingModel;
+    private final List<DeadlineContentRetriever> sources = new ArrayList<>();
+    // null sans modèle de routage
+    private final EmbeddingQueryRouter embeddingRouter;
+    private final CachingQueryRouter routingCache;
+    // null sans routage par lots
+    private final BatchingLanguageModelQueryRouter batchingRouter;
+    // null sans cross-encodeur
+    private final ReRankingContentAggregator reRanker;
+    private final CompressingContentAggregator contentAggregator;
+    private final RetrievalAugmentor retrievalAugmentor;
+
+    private RagPipeline(Builder builder) {
+        RagMetrics metrics = builder.metrics;
+        this.streamingModel = builder.streamingModel;
+        // Le cache est partagé par les retrievers, le routeur et la compression : une requête n'est calculée qu'une fois
+        this.queryEmbeddingModel = new CachedEmbeddingModel(
+                new InstrumentedEmbeddingModel(builder.embeddingModel, metrics), 1000, Duration.ofMinutes(30));
+
+        // ============ SOURCES ============
+        Optional<OnnxCrossEncoderScoringModel> crossEncoder = OnnxCrossEncoderScoringModel.fromSystemProperties();
+        int candidates = crossEncoder.isPresent() ? 50 : 2;
+        double minScore = crossEncoder.isPresent() ? 0.3 : 0.5;
+
+        EmbeddingStore<TextSegment> embeddingStore = EmbeddingStores.create();
+        for (Source source : builder.documents.values()) {
+            embeddingStore.addAll(source.contents().embeddings(), source.contents().segments());
+        }
+        EmbeddingStore<TextSegment> instrumentedStore = new InstrumentedEmbeddingStore(embeddingStore, metrics);
+
+        // Ordre d'insertion : numéros des sources stables dans les prompts de routage (et donc au rejeu)
+        Map<ContentRetriever, String> descriptions = new LinkedHashMap<>();
+        builder.documents.forEach((path, source) -> {
+            String fileName = path.getFileName().toString();
+            // Recherche hybride : sémantique + BM25, pour les sigles et noms d'API (AiServices, RAG...)
+            ContentRetriever retriever = HybridContentRetriever.builder()
+                    .embeddingStore(instrumentedStore)
+                    .filter(metadataKey(Document.FILE_NAME).isEqualTo(fileName))
+                    .embeddingModel(queryEmbeddingModel)
+                    .lexicalIndex(LexicalIndex.build(source.contents().segments()))
+                    .candidates(Math.max(candidates, 10))
+                    .maxResults(candidates)
+                    .minScore(minScore)
+                    .build();
+            DeadlineContentRetriever withDeadline = new DeadlineContentRetriever(fileName, retriever, DOCUMENT_DEADLINE);
+            sources.add(withDeadline);
+            descriptions.put(withDeadline, source.description());
+        });
+        if (builder.webSearchEngine != null) {
+            DeadlineContentRetriever web = new DeadlineContentRetriever("web",
+                    WebSearchContentRetriever.builder()
+                            .webSearchEngine(builder.webSearchEngine)
+                            .maxResults(3)
+                            .build(),
+                    Duration.ofMillis(Long.getLong("rag.web.deadline.ms", 1500)));
+            sources.add(web);
+            descriptions.put(web, WEB);
+        }
+
+        // ============ ROUTAGE ============
+        QueryRouter queryRouter;
+        if (builder.routingModel == null) {
+            this.embeddingRouter = null;
+            this.routingCache = null;
+            this.batchingRouter = null;
+            queryRouter = new DefaultQueryRouter(new ArrayList<>(descriptions.keySet()));
+        } else {
+            QueryRouter languageModelRouter;
+            if (builder.batchRouting) {
+                this.batchingRouter = BatchingLanguageModelQueryRouter.builder()
+                        .model(builder.routingModel)
+                        .descriptions(descriptions)
+                        .build();
+                languageModelRouter = batchingRouter;
+            } else {
+                this.batchingRouter = null;
+                languageModelRouter = LanguageModelQueryRouter.builder()
+                        .chatLanguageModel(builder.routingModel)
+                        .retrieverToDescription(descriptions)
+                        .fallbackStrategy(LanguageModelQueryRouter.FallbackStrategy.FAIL)
+                        .build();
+            }
+            // Un appel en échec (quota, réseau) n'est pas une décision : la question va à toutes
+            // les sources sans être mémorisée
+            this.routingCache = new CachingQueryRouter(languageModelRouter,
+                    queryEmbeddingModel, 0.92, 500, Duration.ofMinutes(30), descriptions.keySet());
+            this.embeddingRouter = EmbeddingQueryRouter.builder()
+                    .embeddingModel(queryEmbeddingModel)
+                    .descriptions(descriptions)
+                    .fallback(routingCache)
+                    .build();
+            queryRouter = embeddingRouter;
+        }
+
+        // ============ CONTEXTE ============
+        // Les meilleurs candidats selon le cross-encodeur, dans un budget de 150 ms par question
+        this.reRanker = crossEncoder.map(scoringModel -> ReRankingContentAggregator.builder()
+                .scoringModel(scoringModel)
+                .maxResults(builder.maxResults)
+                .budget(Duration.ofMillis(Long.getLong("rag.rerank.budget.ms", 150)))
+                .build()).orElse(null);
+
+        // Contexte dédoublonné et élagué à ses phrases utiles avant d'entrer dans le prompt
+        this.contentAggregator = CompressingContentAggregator.builder()
+                .fusion(reRanker != null ? reRanker : new DefaultContentAggregator())
+                .embeddingModel(queryEmbeddingModel)
+                .maxContextTokens(600)
+                .build();
+
+        // Les sources routées sont interrogées en parallèle, sur des threads virtuels
+        this.retrievalAugmentor = DefaultRetrievalAugmentor.builder()
+                .queryRouter(new InstrumentedQueryRouter(queryRouter, metrics))
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .contentAggregator(contentAggregator)
+                .build();
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Assistant en streaming sur ce chemin RAG, avec sa propre mémoire.
+     */
+    public StreamingAssistant assistant(ChatMemory chatMemory) {
+        return AiServices.builder(StreamingAssistant.class)
+                .streamingChatLanguageModel(streamingModel)
+                .chatMemory(chatMemory)
+                .retrievalAugmentor(retrievalAugmentor)
+                .build();
+    }
+
+    /**
+     * Une ligne par composant : routage, sources, re-classement, compression, cache des embeddings.
+     */
+    public String stats() {
+        List<String> lines = new ArrayList<>();
+        if (embeddingRouter != null) {
+            lines.add(embeddingRouter.stats());
+            lines.add(routingCache.stats());
+        }
+        if (batchingRouter != null) {
+            lines.add(batchingRouter.stats());
+        }
+        sources.forEach(source -> lines.add(source.stats()));
+        if (reRanker != null) {
+            lines.add(reRanker.stats());
+        }
+        lines.add(contentAggregator.stats());
+        lines.add(queryEmbeddingModel.stats());
+        return String.join("\n", lines);
+    }
+
+    public static class Builder {
+
+        private RagMetrics metrics;
+        private EmbeddingModel embeddingModel;
+        private StreamingChatLanguageModel streamingModel;
+        private final Map<Path, Source> documents = new LinkedHashMap<>();
+        private WebSearchEngine webSearchEngine;
+        private ChatLanguageModel routingModel;
+        private boolean batchRouting;
+        private int maxResults = 2;
+
+        public Builder metrics(RagMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * Modèle d'embeddings de l'ingestion, réutilisé (instrumenté et mis en cache) pour les requêtes.
+         */
+        public Builder embeddingModel(EmbeddingModel embeddingModel) {
+            this.embeddingModel = embeddingModel;
+            return this;
+        }
+
+        public Builder streamingModel(StreamingChatLanguageModel streamingModel) {
+            this.streamingModel = streamingModel;
+            return this;
+        }
+
+        /**
+         * Document ingéré et sa description pour le routage (voir {@link #RAG_COURSE}, {@link #LANGCHAIN4J_COURSE}).
+         */
+        public Builder document(Path path, PersistentEmbeddingIndex.Contents contents, String description) {
+            documents.put(path, new Source(contents, description));
+            return this;
+        }
+
+        /**
+         * Ajoute la recherche Web comme source, avec l'échéance -Drag.web.deadline.ms (1500 par défaut).
+         */
+        public Builder web(WebSearchEngine webSearchEngine) {
+            this.webSearchEngine = webSearchEngine;
+            return this;
+        }
+
+        /**
+         * LM consulté pour les questions ambiguës ; sans lui, chaque question va à toutes les sources.
+         */
+        public Builder routingModel(ChatLanguageModel routingModel) {
+            this.routingModel = routingModel;
+            return this;
+        }
+
+        /**
+         * Questions ambiguës arrivées ensemble classées en un seul appel ({@link BatchingLanguageModelQueryRouter}).
+         */
+        public Builder batchRouting(boolean batchRouting) {
+            this.batchRouting = batchRouting;
+            return this;
+        }
+
+        /**
+         * Segments gardés par le cross-encodeur, toutes sources confondues.
+         */
+        public Builder maxResults(int maxResults) {
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        public RagPipeline build() {
+            if (metrics == null || embeddingModel == null || streamingModel == null) {
+                throw new IllegalArgumentException("metrics, embeddingModel et streamingModel sont obligatoires");
+            }
+            if (documents.isEmpty() && webSearchEngine == null) {
+                throw new IllegalArgumentException("Au moins un document ou la recherche Web est attendu");
+            }
+            return new RagPipeline(this);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package com.Project;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.model.scoring.ScoringModel;
+import dev.langchain4j.rag.content.Content;
+import dev.langchain4j.rag.content.ContentMetadata;
+import dev.langchain4j.rag.content.aggregator.ContentAggregator;
+import dev.langchain4j.rag.content.aggregator.DefaultContentAggregator;
+import dev.langchain4j.rag.query.Query;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Re-classement des candidats retrouvés par un {@link ScoringModel} (cross-encodeur), avec un
+ * budget de temps par requête.
+ * <p>
+ * Les retrievers rendent beaucoup de candidats (50 par exemple), fusionnés par
+ * {@link DefaultContentAggregator} ; ils sont notés par lots de {@code batchSize} en parallèle
+ * et les {@code maxResults} meilleurs sont gardés. Si tous les lots ne sont pas notés dans le
+ * {@code budget}, les lots restants sont abandonnés et la requête garde les {@code maxResults}
+ * premiers dans l'ordre de la fusion (ordre du bi-encodeur). Une erreur du modèle a le même effet.
+ * <p>
+ * Avec plusieurs requêtes (transformation de la question), les candidats sont notés sur la première.
+ */
+public class ReRankingContentAggregator implements ContentAggregator {
+
+    private static final ExecutorService SCORING_EXECUTOR = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), runnable -> {
+                Thread thread = new Thread(runnable, "re-ranking");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    private final ContentAggregator fusion;
+    private final ScoringModel scoringModel;
+    private final int maxResults;
+    private final int batchSize;
+    private final Duration budget;
+    private final Double minScore;
+    private final Executor executor;
+
+    private final AtomicLong aggregations = new AtomicLong();
+    private final AtomicLong reRanked = new AtomicLong();
+    private final AtomicLong overBudget = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong scoredCandidates = new AtomicLong();
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private ReRankingContentAggregator(Builder builder) {
+        this.fusion = builder.fusion;
+        this.scoringModel = builder.scoringModel;
+        this.maxResults = builder.maxResults;
+        this.batchSize = builder.batchSize;
+        this.budget = builder.budget;
+        this.minScore = builder.minScore;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public List<Content> aggregate(Map<Query, Collection<List<Content>>> queryToContents) {
+        List<Content> fused = fusion.aggregate(queryToContents);
+        if (fused.size() <= 1) {
+            return fused;
+        }
+        aggregations.incrementAndGet();
+        long start = System.nanoTime();
+        long deadline = start + budget.toNanos();
+        String query = queryToContents.keySet().iterator().next().text();
+
+        // ============ NOTATION PAR LOTS ============
+        List<CompletableFuture<List<Double>>> batches = new ArrayList<>();
+        for (int from = 0; from < fused.size(); from += batchSize) {
+            List<TextSegment> segments = fused.subList(from, Math.min(from + batchSize, fused.size())).stream()
+                    .map(Content::textSegment)
+                    .toList();
+            batches.add(CompletableFuture.supplyAsync(() -> {
+                // Un lot qui démarre après l'échéance ne sert plus à rien
+                if (System.nanoTime() > deadline) {
+                    throw new CancellationException();
+                }
+                return scoringModel.scoreAll(segments, query).content();
+            }, executor));
+        }
+
+        double[] scores = new double[fused.size()];
+        try {
+            CompletableFuture.allOf(batches.toArray(CompletableFuture[]::new))
+                    .get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            int next = 0;
+            for (CompletableFuture<List<Double>> batch : batches) {
+                for (double score : batch.join()) {
+                    scores[next++] = score;
+                }
+            }
+        } catch (TimeoutException | CancellationException e) {
+            // Échéance atteinte
+            overBudget.incrementAndGet();
+            return fallback(fused, batches, start);
+        } catch (ExecutionException e) {
+            // Un lot arrivé trop tard dans la file du modèle s'annule lui-même : hors budget, pas en erreur
+            if (e.getCause() instanceof CancellationException) {
+                overBudget.incrementAndGet();
+            } else {
+                failures.incrementAndGet();
+            }
+            return fallback(fused, batches, start);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return fallback(fused, batches, start);
+        }
+
+        // ============ MEILLEURS CANDIDATS ============
+        Integer[] order = new Integer[fused.size()];
+        Arrays.setAll(order, i -> i);
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+        List<Content> kept = new ArrayList<>(maxResults);
+        for (int i = 0; i < order.length && kept.size() < maxResults; i++) {
+            double score = scores[order[i]];
+            if (minScore != null && score < minScore) {
+                break;
+            }
+            Content content = fused.get(order[i]);
+            Map<ContentMetadata, Object> metadata = new HashMap<>(content.metadata());
+            metadata.put(ContentMetadata.RERANKED_SCORE, score);
+            kept.add(Content.from(content.textSegment(), metadata));
+        }
+        reRanked.incrementAndGet();
+        scoredCandidates.addAndGet(fused.size());
+        latency.record(System.nanoTime() - start);
+        return kept;
+    }
+
+    // Ordre de la fusion ; les lots pas encore commencés ne démarreront pas
+    private List<Content> fallback(List<Content> fused, List<CompletableFuture<List<Double>>> batches, long start) {
+        batches.forEach(batch -> batch.cancel(false));
+        latency.record(System.nanoTime() - start);
+        return fused.subList(0, Math.min(maxResults, fused.size()));
+    }
+
+    public String stats() {
+        LatencyHistogram.Snapshot snapshot = latency.snapshot();
+        long done = reRanked.get();
+        return String.format("Re-classement : %d requêtes, %d re-classées (%.0f candidats en moyenne), "
+                        + "%d hors budget et %d en erreur (ordre du bi-encodeur), p50 %.1f ms, p99 %.1f ms",
+                aggregations.get(), done, done == 0 ? 0.0 : (double) scoredCandidates.get() / done,
+                overBudget.get(), failures.get(), snapshot.p50(), snapshot.p99());
+    }
+
+    public static class Builder {
+
+        private ContentAggregator fusion = new DefaultContentAggregator();
+        private ScoringModel scoringModel;
+        private int maxResults = 2;
+        private int batchSize = 16;
+        private Duration budget = Duration.ofMillis(150);
+        private Double minScore;
+        private Executor executor = SCORING_EXECUTOR;
+
+        /**
+         * Fusion des listes de candidats avant notation ; par défaut DefaultContentAggregator.
+         */
+        public Builder fusion(ContentAggregator fusion) {
+            this.fusion = fusion;
+            return this;
+        }
+
+        public Builder scoringModel(ScoringModel scoringModel) {
+            this.scoringModel = scoringModel;
+            return this;
+        }
+
+        /**
+         * Contenus gardés après re-classement (ou dans l'ordre de la fusion, en repli).
+         */
+        public Builder maxResults(int maxResults) {
+            this.maxResults = maxResults;
+            return this;
+        }
+
+        /**
+         * Candidats par appel au modèle ; les lots sont notés en parallèle.
+         */
+        public Builder batchSize(int batchSize) {
+            this.batchSize = batchSize;
+            return this;
+        }
+
+        /**
+         * Temps maximal de notation par requête, au-delà duquel l'ordre de la fusion est gardé.
+         */
+        public Builder budget(Duration budget) {
+            this.budget = budget;
+            return this;
+        }
+
+        /**
+         * Score minimal du modèle pour garder un contenu (dans l'échelle du modèle, des logits
+         * pour un cross-encodeur) ; aucun par défaut.
+         */
+        public Builder minScore(Double minScore) {
+            this.minScore = minScore;
+            return this;
+        }
+
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public ReRankingContentAggregator build() {
+            if (scoringModel == null) {
+                throw new IllegalArgumentException("scoringModel est obligatoire");
+            }
+            if (maxResults < 1 || batchSize < 1 || budget.isNegative() || budget.isZero()) {
+                throw new IllegalArgumentException("maxResults, batchSize et budget doivent être positifs");
+            }
+            return new ReRankingContentAggregator(this);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+/**
+ * Rapport rappel / latence de l'index HNSW, des magasins quantifiés ({@link QuantizedEmbeddingStore})
+ * et du parcours exact réparti ({@link ShardedEmbeddingStore})
+ * face au parcours exact de {@link VectorEmbeddingStore}.
+ * <p>
+ * Corpus synthétique de vecteurs groupés (proche de vrais embeddings de phrases).
+ * Arguments : [nombre de vecteurs] [nombre de requêtes] [k], par défaut 20000 200 10.
+ */
+public class RecallReport {
+
+    private static final int DIMENSION = 384;   // dimension d'AllMiniLmL6V2
+
+    public static void main(String[] args) {
+        int corpusSize = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int queryCount = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int k = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        Random random = new Random(7);
+        List<Embedding> corpus = clusteredVectors(corpusSize, random);
+        List<Embedding> queries = clusteredVectors(queryCount, random);
+        List<TextSegment> segments = new ArrayList<>(corpusSize);
+        for (int i = 0; i < corpusSize; i++) {
+            segments.add(TextSegment.from("segment " + i));
+        }
+
+        System.out.println(" Corpus : " + corpusSize + " vecteurs, " + queryCount + " requêtes, k = " + k
+                + ", SIMD : " + VectorMath.SIMD);
+
+        // ============ RÉFÉRENCE : PARCOURS EXACT ============
+        VectorEmbeddingStore exact = new VectorEmbeddingStore();
+        exact.addAll(corpus, segments);
+        List<Set<String>> truth = new ArrayList<>();
+        long[] exactLatencies = new long[queryCount];
+        List<List<EmbeddingMatch<TextSegment>>> exactResults = run(exact, queries, k, exactLatencies);
+        for (List<EmbeddingMatch<TextSegment>> matches : exactResults) {
+            Set<String> ids = new HashSet<>();
+            matches.forEach(match -> ids.add(match.embedded().text()));
+            truth.add(ids);
+        }
+        System.out.printf("%n%-28s %8s %10s %10s%n", "Index", "Rappel", "p50 (µs)", "p99 (µs)");
+        printRow("exact", 1.0, exactLatencies);
+
+        // ============ HNSW ============
+        for (int m : new int[]{8, 16, 32}) {
+            long buildStart = System.nanoTime();
+            HnswEmbeddingStore hnsw = new HnswEmbeddingStore(m, 200, 64);
+            hnsw.addAll(corpus, segments);
+            long buildMillis = (System.nanoTime() - buildStart) / 1_000_000;
+            System.out.println("   HNSW m = " + m + " construit en " + buildMillis + " ms");
+
+            for (int efSearch : new int[]{16, 32, 64, 128, 256}) {
+                hnsw.efSearch(efSearch);
+                long[] latencies = new long[queryCount];
+                List<List<EmbeddingMatch<TextSegment>>> results = run(hnsw, queries, k, latencies);
+                printRow("hnsw m=" + m + " ef=" + efSearch, recall(results, truth, k), latencies);
+            }
+        }
+
+        // ============ SHARDS (PARCOURS EXACT EN PARALLÈLE) ============
+        System.out.println();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int shards : IntStream.of(2, cores, 2 * cores).distinct().sorted().toArray()) {
+            ShardedEmbeddingStore sharded = ShardedEmbeddingStore.builder().shards(shards).build();
+            sharded.addAll(corpus, segments);
+            long[] latencies = new long[queryCount];
+            List<List<EmbeddingMatch<TextSegment>>> results = run(sharded, queries, k, latencies);
+            printRow("sharded x" + shards + " (" + cores + " cœurs)", recall(results, truth, k), latencies);
+        }
+
+        // ============ QUANTIFICATION (INT8 / BINAIRE) + RECALCUL EXACT ============
+        System.out.println();
+        for (QuantizedEmbeddingStore.Quantization quantization : QuantizedEmbeddingStore.Quantization.values()) {
+            for (int rescoreFactor : new int[]{1, 2, 4, 10, 20}) {
+                try (QuantizedEmbeddingStore quantized = new QuantizedEmbeddingStore(quantization, rescoreFactor)) {
+                    quantized.addAll(corpus, segments);
+                    long[] latencies = new long[queryCount];
+                    List<List<EmbeddingMatch<TextSegment>>> results = run(quantized, queries, k, latencies);
+                    printRow(quantization.name().toLowerCase() + " x" + rescoreFactor
+                                    + " (" + quantized.bytesPerVector() + " o/vect.)",
+                            recall(results, truth, k), latencies);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+        System.out.println("   float : " + DIMENSION * Float.BYTES + " o/vect. en mémoire");
+    }
+
+    private static double recall(List<List<EmbeddingMatch<TextSegment>>> results, List<Set<String>> truth, int k) {
+        int found = 0;
+        for (int q = 0; q < results.size(); q++) {
+            for (EmbeddingMatch<TextSegment> match : results.get(q)) {
+                if (truth.get(q).contains(match.embedded().text())) {
+                    found++;
+                }
+            }
+        }
+        return found / (double) (results.size() * k);
+    }
+
+    // Un premier passage non mesuré chauffe le JIT, le second remplit les latences
+    private static List<List<EmbeddingMatch<TextSegment>>> run(EmbeddingStore<TextSegment> store,
+                                                               List<Embedding> queries,
+                                                               int k,
+                                                               long[] latencies) {
+        queries.forEach(query -> search(store, query, k));
+        List<List<EmbeddingMatch<TextSegment>>> results = new ArrayList<>(queries.size());
+        for (int q = 0; q < queries.size(); q++) {
+            long start = System.nanoTime();
+            results.add(search(store, queries.get(q), k));
+            latencies[q] = System.nanoTime() - start;
+        }
+        return results;
+    }
+
+    private static List<EmbeddingMatch<TextSegment>> search(EmbeddingStore<TextSegment> store, Embedding query, int k) {
+        return store.search(EmbeddingSearchRequest.builder()
+                .queryEmbedding(query)
+                .maxResults(k)
+                .minScore(0.0)
+                .build()).matches();
+    }
+
+    private static void printRow(String name, double recall, long[] latencies) {
+        long[] sorted = latencies.clone();
+        Arrays.sort(sorted);
+        System.out.printf("%-28s %8.3f %10.1f %10.1f%n", name, recall,
+                sorted[sorted.length / 2] / 1000.0,
+                sorted[(int) (sorted.length * 0.99)] / 1000.0);
+    }
+
+    // Vecteurs autour de 100 centres, pour éviter le cas dégénéré de vecteurs uniformes
+    private static List<Embedding> clusteredVectors(int count, Random random) {
+        Random centers = new Random(1);
+        float[][] centroids = new float[100][DIMENSION];
+        for (float[] centroid : centroids) {
+            for (int i = 0; i < DIMENSION; i++) {
+                centroid[i] = (float) centers.nextGaussian();
+            }
+        }
+        List<Embedding> vectors = new ArrayList<>(count);
+        for (int n = 0; n < count; n++) {
+            float[] centroid = centroids[random.nextInt(centroids.length)];
+            float[] vector = new float[DIMENSION];
+            for (int i = 0; i < DIMENSION; i++) {
+                vector[i] = centroid[i] + 0.8f * (float) random.nextGaussian();
+            }
+            vectors.add(Embedding.from(vector));
+        }
+        return vectors;
+    }
+}
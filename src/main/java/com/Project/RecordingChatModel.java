@@ -0,0 +1,81 @@
+package com.Project;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Décorateur de ChatLanguageModel qui enregistre chaque échange (texte de la réponse et tokens)
+ * dans un {@link ReplayLog}, pour le rejouer ensuite avec {@link ReplayingChatModel}.
+ * Les appels avec outils ne sont pas enregistrés.
+ */
+public class RecordingChatModel implements ChatLanguageModel {
+
+    static final String KIND = "chat";
+
+    private final ChatLanguageModel delegate;
+    private final ReplayLog log;
+
+    public RecordingChatModel(ChatLanguageModel delegate, ReplayLog log) {
+        this.delegate = delegate;
+        this.log = log;
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        ChatResponse response = delegate.chat(request);
+        record(log, request.messages(), response.aiMessage(), response.tokenUsage());
+        return response;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        Response<AiMessage> response = delegate.generate(messages);
+        record(log, messages, response.content(), response.tokenUsage());
+        return response;
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    /**
+     * Enregistre un échange sous la clé {@link #request} ; partagé avec {@link RecordingStreamingChatModel}.
+     */
+    static void record(ReplayLog log, List<ChatMessage> messages, AiMessage answer, TokenUsage usage) {
+        if (answer.hasToolExecutionRequests()) {
+            return;
+        }
+        log.record(KIND, request(messages), List.of(
+                answer.text() == null ? "" : answer.text(),
+                count(usage == null ? null : usage.inputTokenCount()),
+                count(usage == null ? null : usage.outputTokenCount())));
+    }
+
+    private static String count(Integer tokens) {
+        return tokens == null ? "" : tokens.toString();
+    }
+
+    /**
+     * Forme canonique des messages d'une requête, clé de l'enregistrement.
+     */
+    static String request(List<ChatMessage> messages) {
+        return messages.stream().map(ChatMessage::toString).collect(Collectors.joining("\n"));
+    }
+}
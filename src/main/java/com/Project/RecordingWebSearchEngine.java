@@ -0,0 +1,50 @@
+package com.Project;
+
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import dev.langchain4j.web.search.WebSearchRequest;
+import dev.langchain4j.web.search.WebSearchResults;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Décorateur de WebSearchEngine qui enregistre chaque recherche (titre, URL, extrait et contenu
+ * des résultats) dans un {@link ReplayLog}, pour la rejouer avec {@link ReplayingWebSearchEngine}.
+ */
+public class RecordingWebSearchEngine implements WebSearchEngine {
+
+    static final String KIND = "web";
+    static final int FIELDS_PER_RESULT = 4;
+
+    private final WebSearchEngine delegate;
+    private final ReplayLog log;
+
+    public RecordingWebSearchEngine(WebSearchEngine delegate, ReplayLog log) {
+        this.delegate = delegate;
+        this.log = log;
+    }
+
+    @Override
+    public WebSearchResults search(WebSearchRequest request) {
+        WebSearchResults results = delegate.search(request);
+        List<String> fields = new ArrayList<>();
+        Long total = results.searchInformation() == null ? null : results.searchInformation().totalResults();
+        fields.add(total == null ? "" : total.toString());
+        for (WebSearchOrganicResult result : results.results()) {
+            fields.add(result.title());
+            fields.add(result.url().toString());
+            fields.add(result.snippet() == null ? "" : result.snippet());
+            fields.add(result.content() == null ? "" : result.content());
+        }
+        log.record(KIND, request(request), fields);
+        return results;
+    }
+
+    /**
+     * Termes et nombre de résultats demandés, clé de l'enregistrement.
+     */
+    static String request(WebSearchRequest request) {
+        return request.searchTerms() + "\n" + request.maxResults();
+    }
+}
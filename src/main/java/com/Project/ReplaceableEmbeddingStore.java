@@ -0,0 +1,24 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Magasin d'embeddings qui remplace les segments d'un document en une seule opération :
+ * une recherche voit l'ancienne version ou la nouvelle, jamais les deux ni aucune.
+ * Requis par {@link WatchedDirectoryIngestion} ; tous les magasins de {@link EmbeddingStores} le sont.
+ */
+public interface ReplaceableEmbeddingStore extends EmbeddingStore<TextSegment> {
+
+    /**
+     * Retire oldIds et ajoute les nouveaux embeddings atomiquement vis-à-vis des recherches.
+     */
+    void replaceAll(Collection<String> oldIds,
+                    List<String> ids,
+                    List<Embedding> embeddings,
+                    List<TextSegment> segments);
+}
@@ -0,0 +1,162 @@
+package com.Project;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fichier d'échanges enregistrés avec les services distants (Gemini, Tavily), pour les rejouer
+ * sans réseau : {@link RecordingChatModel} / {@link ReplayingChatModel} et
+ * {@link RecordingWebSearchEngine} / {@link ReplayingWebSearchEngine}.
+ * <p>
+ * Une ligne par échange : type, empreinte SHA-256 de la requête, puis les champs de la réponse
+ * en Base64, séparés par des tabulations. Le fichier est complété à chaque enregistrement.
+ * Une requête enregistrée plusieurs fois rejoue ses réponses à tour de rôle.
+ */
+public final class ReplayLog implements AutoCloseable {
+
+    /**
+     * Latence injectée au rejeu : {@code latency} plus ou moins {@code jitter}, tirage uniforme.
+     */
+    public record Latency(Duration latency, Duration jitter) {
+
+        public static final Latency NONE = new Latency(Duration.ZERO, Duration.ZERO);
+
+        void pause() {
+            long base = latency.toNanos();
+            long spread = jitter.toNanos();
+            long nanos = spread == 0 ? base : base + ThreadLocalRandom.current().nextLong(-spread, spread + 1);
+            if (nanos <= 0) {
+                return;
+            }
+            try {
+                Thread.sleep(Duration.ofNanos(nanos));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Rejeu interrompu", e);
+            }
+        }
+    }
+
+    private final Path file;
+    private final Map<String, List<List<String>>> exchanges = new HashMap<>();
+    private final Map<String, Integer> cursors = new HashMap<>();
+    private BufferedWriter writer;
+
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong missing = new AtomicLong();
+    private final AtomicLong recorded = new AtomicLong();
+
+    private ReplayLog(Path file) {
+        this.file = file;
+    }
+
+    /**
+     * Lit les échanges déjà enregistrés dans le fichier (s'il existe).
+     */
+    public static ReplayLog open(Path file) throws IOException {
+        ReplayLog log = new ReplayLog(file);
+        if (Files.exists(file)) {
+            for (String line : Files.readAllLines(file, StandardCharsets.UTF_8)) {
+                if (line.isBlank()) {
+                    continue;
+                }
+                String[] columns = line.split("\t", -1);
+                List<String> fields = new ArrayList<>(columns.length - 2);
+                for (int i = 2; i < columns.length; i++) {
+                    fields.add(decode(columns[i]));
+                }
+                log.exchanges.computeIfAbsent(columns[0] + "\t" + columns[1], key -> new ArrayList<>()).add(fields);
+            }
+        }
+        return log;
+    }
+
+    /**
+     * Ajoute un échange au fichier et le rend aussitôt disponible au rejeu.
+     */
+    public synchronized void record(String kind, String request, List<String> fields) {
+        String digest = digest(request);
+        try {
+            if (writer == null) {
+                if (file.getParent() != null) {
+                    Files.createDirectories(file.getParent());
+                }
+                writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            StringBuilder line = new StringBuilder(kind).append('\t').append(digest);
+            for (String field : fields) {
+                line.append('\t').append(encode(field));
+            }
+            writer.write(line.toString());
+            writer.newLine();
+            writer.flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        exchanges.computeIfAbsent(kind + "\t" + digest, key -> new ArrayList<>()).add(List.copyOf(fields));
+        recorded.incrementAndGet();
+    }
+
+    /**
+     * Réponse enregistrée pour cette requête, ou vide si elle n'a jamais été vue.
+     */
+    public synchronized Optional<List<String>> replay(String kind, String request) {
+        String key = kind + "\t" + digest(request);
+        List<List<String>> answers = exchanges.get(key);
+        if (answers == null) {
+            missing.incrementAndGet();
+            return Optional.empty();
+        }
+        int cursor = cursors.merge(key, 1, Integer::sum) - 1;
+        replayed.incrementAndGet();
+        return Optional.of(answers.get(cursor % answers.size()));
+    }
+
+    public String stats() {
+        return String.format("Rejeu : %d échanges enregistrés, %d rejoués, %d absents du fichier",
+                recorded.get(), replayed.get(), missing.get());
+    }
+
+    private static String digest(String request) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(request.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String field) {
+        return Base64.getEncoder().encodeToString((field == null ? "" : field).getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String column) {
+        return new String(Base64.getDecoder().decode(column), StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (writer != null) {
+            writer.close();
+            writer = null;
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package com.Project;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.util.List;
+
+/**
+ * ChatLanguageModel hors ligne qui rejoue les réponses d'un {@link ReplayLog}, après la latence
+ * injectée : même conversation, même réponse, sans clé d'API ni réseau.
+ * Une requête jamais enregistrée reçoit {@code fallbackAnswer} (comptée comme absente dans les stats du journal).
+ */
+public class ReplayingChatModel implements ChatLanguageModel {
+
+    private final ReplayLog log;
+    private final ReplayLog.Latency latency;
+    private final String fallbackAnswer;
+
+    public ReplayingChatModel(ReplayLog log, ReplayLog.Latency latency) {
+        this(log, latency, "Réponse simulée.");
+    }
+
+    public ReplayingChatModel(ReplayLog log, ReplayLog.Latency latency, String fallbackAnswer) {
+        this.log = log;
+        this.latency = latency;
+        this.fallbackAnswer = fallbackAnswer;
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        latency.pause();
+        return log.replay(RecordingChatModel.KIND, RecordingChatModel.request(messages))
+                .map(fields -> Response.from(AiMessage.from(fields.get(0)),
+                        new TokenUsage(count(fields.get(1)), count(fields.get(2)))))
+                .orElseGet(() -> {
+                    int inputTokens = messages.stream().mapToInt(message -> message.toString().length() / 4).sum();
+                    return Response.from(AiMessage.from(fallbackAnswer),
+                            new TokenUsage(inputTokens, fallbackAnswer.length() / 4));
+                });
+    }
+
+    private static Integer count(String tokens) {
+        return tokens.isEmpty() ? null : Integer.valueOf(tokens);
+    }
+}
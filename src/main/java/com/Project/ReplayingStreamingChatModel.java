@@ -0,0 +1,74 @@
+package com.Project;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.StreamingResponseHandler;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
+import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.output.TokenUsage;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * StreamingChatLanguageModel hors ligne qui rejoue les réponses d'un {@link ReplayLog} au fil
+ * des tokens : le premier arrive après la latence injectée, les suivants (un mot et l'espace qui
+ * le suit) toutes les {@code tokenInterval}, sur un thread virtuel comme un vrai flux.
+ * Mêmes enregistrements que {@link ReplayingChatModel} ; une requête jamais enregistrée reçoit
+ * {@code fallbackAnswer}.
+ */
+public class ReplayingStreamingChatModel implements StreamingChatLanguageModel {
+
+    private final ReplayLog log;
+    private final ReplayLog.Latency latency;
+    private final Duration tokenInterval;
+    private final String fallbackAnswer;
+
+    public ReplayingStreamingChatModel(ReplayLog log, ReplayLog.Latency latency, Duration tokenInterval) {
+        this(log, latency, tokenInterval, "Réponse simulée.");
+    }
+
+    public ReplayingStreamingChatModel(ReplayLog log, ReplayLog.Latency latency, Duration tokenInterval,
+                                       String fallbackAnswer) {
+        this.log = log;
+        this.latency = latency;
+        this.tokenInterval = tokenInterval;
+        this.fallbackAnswer = fallbackAnswer;
+    }
+
+    @Override
+    public void generate(List<ChatMessage> messages, StreamingResponseHandler<AiMessage> handler) {
+        Response<AiMessage> response = log.replay(RecordingChatModel.KIND, RecordingChatModel.request(messages))
+                .map(fields -> Response.from(AiMessage.from(fields.get(0)),
+                        new TokenUsage(count(fields.get(1)), count(fields.get(2)))))
+                .orElseGet(() -> {
+                    int inputTokens = messages.stream().mapToInt(message -> message.toString().length() / 4).sum();
+                    return Response.from(AiMessage.from(fallbackAnswer),
+                            new TokenUsage(inputTokens, fallbackAnswer.length() / 4));
+                });
+        Thread.ofVirtual().name("replay-stream").start(() -> stream(response, handler));
+    }
+
+    private void stream(Response<AiMessage> response, StreamingResponseHandler<AiMessage> handler) {
+        try {
+            latency.pause();
+            String[] tokens = response.content().text().split("(?<=\\s)(?=\\S)");
+            for (int i = 0; i < tokens.length; i++) {
+                if (i > 0 && !tokenInterval.isZero()) {
+                    Thread.sleep(tokenInterval);
+                }
+                handler.onNext(tokens[i]);
+            }
+            handler.onComplete(response);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            handler.onError(new IllegalStateException("Rejeu interrompu", e));
+        } catch (RuntimeException e) {
+            handler.onError(e);
+        }
+    }
+
+    private static Integer count(String tokens) {
+        return tokens.isEmpty() ? null : Integer.valueOf(tokens);
+    }
+}
@@ -0,0 +1,44 @@
+package com.Project;
+
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchInformationResult;
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import dev.langchain4j.web.search.WebSearchRequest;
+import dev.langchain4j.web.search.WebSearchResults;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Moteur de recherche Web hors ligne qui rejoue les résultats d'un {@link ReplayLog} après la
+ * latence injectée. Une recherche jamais enregistrée ne renvoie aucun résultat.
+ */
+public class ReplayingWebSearchEngine implements WebSearchEngine {
+
+    private final ReplayLog log;
+    private final ReplayLog.Latency latency;
+
+    public ReplayingWebSearchEngine(ReplayLog log, ReplayLog.Latency latency) {
+        this.log = log;
+        this.latency = latency;
+    }
+
+    @Override
+    public WebSearchResults search(WebSearchRequest request) {
+        latency.pause();
+        List<String> fields = log.replay(RecordingWebSearchEngine.KIND, RecordingWebSearchEngine.request(request))
+                .orElse(List.of("0"));
+        List<WebSearchOrganicResult> results = new ArrayList<>();
+        for (int i = 1; i + RecordingWebSearchEngine.FIELDS_PER_RESULT <= fields.size();
+             i += RecordingWebSearchEngine.FIELDS_PER_RESULT) {
+            results.add(WebSearchOrganicResult.from(
+                    fields.get(i),
+                    URI.create(fields.get(i + 1)),
+                    fields.get(i + 2).isEmpty() ? null : fields.get(i + 2),
+                    fields.get(i + 3).isEmpty() ? null : fields.get(i + 3)));
+        }
+        long total = fields.get(0).isEmpty() ? results.size() : Long.parseLong(fields.get(0));
+        return WebSearchResults.from(WebSearchInformationResult.from(total), results);
+    }
+}
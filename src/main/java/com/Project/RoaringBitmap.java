@@ -0,0 +1,286 @@
+package com.Project;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Ensemble d'entiers positifs compressé à la manière de Roaring : les entiers sont groupés par
+ * leurs 16 bits de poids fort et chaque groupe est soit un tableau trié de char (jusqu'à 4096
+ * valeurs), soit une table de 65536 bits (8 Ko), selon ce qui est le plus petit.
+ * <p>
+ * Index de métadonnées des magasins d'embeddings ({@link MetadataBitmapIndex}) : intersection,
+ * union et différence se font groupe par groupe (fusion de tableaux triés ou opérations sur des
+ * mots de 64 bits).
+ * Les résultats sont de nouveaux ensembles ; add et remove modifient l'ensemble. Pas thread-safe.
+ */
+final class RoaringBitmap {
+
+    private static final int ARRAY_MAX = 4096;
+    private static final int WORDS = 1024;
+
+    // Groupe i : 16 bits de poids fort keys[i], contenu containers[i] (char[] ou long[]), cardinalities[i] valeurs
+    private char[] keys = new char[4];
+    private Object[] containers = new Object[4];
+    private int[] cardinalities = new int[4];
+    private int count;
+
+    // ============ MODIFICATION ============
+
+    void add(int x) {
+        char low = (char) x;
+        int i = find((char) (x >>> 16));
+        if (i < 0) {
+            i = -i - 1;
+            insert(i, (char) (x >>> 16), new char[4], 0);
+        }
+        if (containers[i] instanceof long[] words) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                words[low >>> 6] |= bit;
+                cardinalities[i]++;
+            }
+            return;
+        }
+        char[] values = (char[]) containers[i];
+        int n = cardinalities[i];
+        int position = Arrays.binarySearch(values, 0, n, low);
+        if (position >= 0) {
+            return;
+        }
+        position = -position - 1;
+        if (n == ARRAY_MAX) {
+            long[] words = toWords(values, n);
+            words[low >>> 6] |= 1L << low;
+            containers[i] = words;
+            cardinalities[i] = n + 1;
+            return;
+        }
+        if (n == values.length) {
+            values = Arrays.copyOf(values, Math.min(ARRAY_MAX, n * 2));
+            containers[i] = values;
+        }
+        System.arraycopy(values, position, values, position + 1, n - position);
+        values[position] = low;
+        cardinalities[i] = n + 1;
+    }
+
+    void remove(int x) {
+        char low = (char) x;
+        int i = find((char) (x >>> 16));
+        if (i < 0) {
+            return;
+        }
+        if (containers[i] instanceof long[] words) {
+            long bit = 1L << low;
+            if ((words[low >>> 6] & bit) == 0) {
+                return;
+            }
+            words[low >>> 6] &= ~bit;
+            if (--cardinalities[i] <= ARRAY_MAX) {
+                containers[i] = toValues(words, cardinalities[i]);
+            }
+        } else {
+            char[] values = (char[]) containers[i];
+            int n = cardinalities[i];
+            int position = Arrays.binarySearch(values, 0, n, low);
+            if (position < 0) {
+                return;
+            }
+            System.arraycopy(values, position + 1, values, position, n - position - 1);
+            cardinalities[i] = n - 1;
+        }
+        if (cardinalities[i] == 0) {
+            System.arraycopy(keys, i + 1, keys, i, count - i - 1);
+            System.arraycopy(containers, i + 1, containers, i, count - i - 1);
+            System.arraycopy(cardinalities, i + 1, cardinalities, i, count - i - 1);
+            containers[--count] = null;
+        }
+    }
+
+    // ============ LECTURE ============
+
+    boolean contains(int x) {
+        int i = find((char) (x >>> 16));
+        if (i < 0) {
+            return false;
+        }
+        char low = (char) x;
+        if (containers[i] instanceof long[] words) {
+            return (words[low >>> 6] & (1L << low)) != 0;
+        }
+        return Arrays.binarySearch((char[]) containers[i], 0, cardinalities[i], low) >= 0;
+    }
+
+    int cardinality() {
+        int total = 0;
+        for (int i = 0; i < count; i++) {
+            total += cardinalities[i];
+        }
+        return total;
+    }
+
+    boolean isEmpty() {
+        return count == 0;
+    }
+
+    /**
+     * Parcourt les entiers dans l'ordre croissant.
+     */
+    void forEach(IntConsumer action) {
+        for (int i = 0; i < count; i++) {
+            int high = keys[i] << 16;
+            if (containers[i] instanceof long[] words) {
+                for (int w = 0; w < WORDS; w++) {
+                    long word = words[w];
+                    while (word != 0) {
+                        action.accept(high | (w << 6) + Long.numberOfTrailingZeros(word));
+                        word &= word - 1;
+                    }
+                }
+            } else {
+                char[] values = (char[]) containers[i];
+                for (int v = 0; v < cardinalities[i]; v++) {
+                    action.accept(high | values[v]);
+                }
+            }
+        }
+    }
+
+    // ============ OPÉRATIONS ENSEMBLISTES ============
+
+    RoaringBitmap and(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < count && j < other.count) {
+            if (keys[i] < other.keys[j]) {
+                i++;
+            } else if (keys[i] > other.keys[j]) {
+                j++;
+            } else {
+                result.appendWords(keys[i], combine(containers[i], cardinalities[i],
+                        other.containers[j], other.cardinalities[j], Operation.AND));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    RoaringBitmap or(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int i = 0;
+        int j = 0;
+        while (i < count || j < other.count) {
+            if (j == other.count || (i < count && keys[i] < other.keys[j])) {
+                result.appendCopy(keys[i], containers[i], cardinalities[i]);
+                i++;
+            } else if (i == count || keys[i] > other.keys[j]) {
+                result.appendCopy(other.keys[j], other.containers[j], other.cardinalities[j]);
+                j++;
+            } else {
+                result.appendWords(keys[i], combine(containers[i], cardinalities[i],
+                        other.containers[j], other.cardinalities[j], Operation.OR));
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+    RoaringBitmap andNot(RoaringBitmap other) {
+        RoaringBitmap result = new RoaringBitmap();
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            while (j < other.count && other.keys[j] < keys[i]) {
+                j++;
+            }
+            if (j < other.count && other.keys[j] == keys[i]) {
+                result.appendWords(keys[i], combine(containers[i], cardinalities[i],
+                        other.containers[j], other.cardinalities[j], Operation.AND_NOT));
+            } else {
+                result.appendCopy(keys[i], containers[i], cardinalities[i]);
+            }
+        }
+        return result;
+    }
+
+    private enum Operation {
+        AND, OR, AND_NOT
+    }
+
+    // Les deux groupes sont vus comme des tables de bits : 1024 opérations sur des mots de 64 bits
+    private static long[] combine(Object left, int leftCardinality, Object right, int rightCardinality,
+                                  Operation operation) {
+        long[] a = left instanceof long[] words ? words : toWords((char[]) left, leftCardinality);
+        long[] b = right instanceof long[] words ? words : toWords((char[]) right, rightCardinality);
+        long[] result = new long[WORDS];
+        for (int w = 0; w < WORDS; w++) {
+            result[w] = switch (operation) {
+                case AND -> a[w] & b[w];
+                case OR -> a[w] | b[w];
+                case AND_NOT -> a[w] & ~b[w];
+            };
+        }
+        return result;
+    }
+
+    // Ajoute un groupe en fin d'ensemble, sous la forme la plus compacte ; un groupe vide est ignoré
+    private void appendWords(char key, long[] words) {
+        int cardinality = 0;
+        for (long word : words) {
+            cardinality += Long.bitCount(word);
+        }
+        if (cardinality == 0) {
+            return;
+        }
+        insert(count, key, cardinality <= ARRAY_MAX ? toValues(words, cardinality) : words, cardinality);
+    }
+
+    private void appendCopy(char key, Object container, int cardinality) {
+        Object copy = container instanceof long[] words ? words.clone() : Arrays.copyOf((char[]) container, cardinality);
+        insert(count, key, copy, cardinality);
+    }
+
+    // ============ GROUPES ============
+
+    private int find(char key) {
+        return Arrays.binarySearch(keys, 0, count, key);
+    }
+
+    private void insert(int i, char key, Object container, int cardinality) {
+        if (count == keys.length) {
+            keys = Arrays.copyOf(keys, count * 2);
+            containers = Arrays.copyOf(containers, count * 2);
+            cardinalities = Arrays.copyOf(cardinalities, count * 2);
+        }
+        System.arraycopy(keys, i, keys, i + 1, count - i);
+        System.arraycopy(containers, i, containers, i + 1, count - i);
+        System.arraycopy(cardinalities, i, cardinalities, i + 1, count - i);
+        keys[i] = key;
+        containers[i] = container;
+        cardinalities[i] = cardinality;
+        count++;
+    }
+
+    private static long[] toWords(char[] values, int cardinality) {
+        long[] words = new long[WORDS];
+        for (int v = 0; v < cardinality; v++) {
+            words[values[v] >>> 6] |= 1L << values[v];
+        }
+        return words;
+    }
+
+    private static char[] toValues(long[] words, int cardinality) {
+        char[] values = new char[Math.max(4, cardinality)];
+        int n = 0;
+        for (int w = 0; w < WORDS; w++) {
+            long word = words[w];
+            while (word != 0) {
+                values[n++] = (char) ((w << 6) + Long.numberOfTrailingZeros(word));
+                word &= word - 1;
+            }
+        }
+        return values;
+    }
+}
@@ -0,0 +1,100 @@
+package com.Project;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Journal des requêtes et réponses du LM, échantillonné et asynchrone : le thread de la requête
+ * ne fait que tirer au sort et déposer l'objet dans une file bornée ; la mise en texte et
+ * l'écriture se font sur un thread dédié. File pleine : l'entrée est perdue (et comptée)
+ * plutôt que de ralentir la requête.
+ * <p>
+ * Remplace logRequestsAndResponses(true) + Level.FINE, qui écrivaient tout sur la console
+ * de façon synchrone.
+ */
+public class SampledPayloadLog implements AutoCloseable {
+
+    private static final Logger LOGGER = Logger.getLogger("com.Project.payloads");
+
+    private record Entry(String kind, Object payload) {
+    }
+
+    private final double sampleRate;
+    private final BlockingQueue<Entry> queue;
+    private final Thread writer;
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private volatile boolean closed;
+
+    /**
+     * @param sampleRate    fraction des appels journalisés (0 = aucun, 1 = tous)
+     * @param queueCapacity nombre d'entrées en attente d'écriture
+     */
+    public SampledPayloadLog(double sampleRate, int queueCapacity) {
+        this.sampleRate = sampleRate;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.writer = Thread.ofPlatform().daemon().name("payload-log").start(this::drain);
+    }
+
+    /**
+     * Taux d'échantillonnage lu dans -Drag.log.payloads (0 par défaut : rien n'est journalisé).
+     */
+    public static SampledPayloadLog fromSystemProperties() {
+        return new SampledPayloadLog(Double.parseDouble(System.getProperty("rag.log.payloads", "0")), 1024);
+    }
+
+    /**
+     * Tire au sort l'appel ; la requête et la réponse d'un appel retenu sont journalisées ensemble.
+     */
+    public boolean sample() {
+        return sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate);
+    }
+
+    /**
+     * Dépose une entrée ; payload n'est converti en texte que sur le thread d'écriture.
+     */
+    public void log(String kind, Object payload) {
+        if (closed || !queue.offer(new Entry(kind, payload))) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!closed || !queue.isEmpty()) {
+                Entry entry = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (entry != null) {
+                    LOGGER.info(entry.kind() + " : " + entry.payload());
+                    written.incrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public long written() {
+        return written.get();
+    }
+
+    public long dropped() {
+        return dropped.get();
+    }
+
+    /**
+     * Écrit les entrées encore en file (une seconde au plus) puis arrête le thread.
+     */
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            writer.join(1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package com.Project;
+
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.model.chat.Capability;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+import dev.langchain4j.model.chat.request.ChatRequestParameters;
+import dev.langchain4j.model.chat.response.ChatResponse;
+import dev.langchain4j.model.output.Response;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Décorateur de ChatLanguageModel qui ordonnance les appels au LM :
+ * <p>
+ * 1. des appels identiques simultanés (mêmes messages, mêmes outils) ne partent qu'une fois,
+ *    les autres appelants attendent la même réponse ;
+ * 2. au plus {@code maxInFlight} appels en cours, les suivants attendent leur tour (file) ;
+ * 3. débit limité par un seau à jetons : {@code requestsPerSecond} en régime établi,
+ *    jusqu'à {@code burst} appels d'affilée après un temps calme ;
+ * 4. une erreur passagère (quota 429, 5xx, réseau) est retentée après une attente tirée au
+ *    hasard entre 0 et {@code initialBackoff} x 2^tentative (plafonnée à {@code maxBackoff}).
+ * <p>
+ * Une rafale de questions ralentit donc au lieu d'échouer sur le quota. Profondeur de la file
+ * et attente sont exposées par {@link #stats()} et, si un {@link RagMetrics} est fourni, par /metrics.
+ * Le modèle décoré ne doit pas retenter lui-même (maxRetries(1) pour Gemini).
+ */
+public class ScheduledChatModel implements ChatLanguageModel {
+
+    // Le client Gemini ne lève qu'une RuntimeException « HTTP error (503): {corps} » : le statut est en tête
+    private static final Pattern HTTP_STATUS = Pattern.compile("^HTTP error \\((\\d{3})\\)");
+    private static final Set<Integer> TRANSIENT_STATUSES = Set.of(429, 500, 502, 503, 504);
+
+    // Clé de regroupement : la méthode appelée et ses arguments (messages et outils ont un equals)
+    private record Call(String method, Object arguments) {
+    }
+
+    private final ChatLanguageModel delegate;
+    private final double tokensPerNano;
+    private final int burst;
+    private final Semaphore inFlight;
+    private final int maxRetries;
+    private final Duration initialBackoff;
+    private final Duration maxBackoff;
+    private final Predicate<Throwable> retryable;
+    private final RagMetrics metrics;
+
+    private final ConcurrentHashMap<Call, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+
+    // ============ SEAU À JETONS ============
+    private double tokens;
+    private long refilledAt = System.nanoTime();
+
+    // ============ STATISTIQUES ============
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong upstreamCalls = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final AtomicInteger maxQueueDepth = new AtomicInteger();
+    private final LatencyHistogram queueWait = new LatencyHistogram();
+
+    private ScheduledChatModel(Builder builder) {
+        this.delegate = builder.delegate;
+        this.tokensPerNano = builder.requestsPerSecond / 1e9;
+        this.burst = builder.burst;
+        this.tokens = builder.burst;
+        this.inFlight = new Semaphore(builder.maxInFlight, true);
+        this.maxRetries = builder.maxRetries;
+        this.initialBackoff = builder.initialBackoff;
+        this.maxBackoff = builder.maxBackoff;
+        this.retryable = builder.retryable;
+        this.metrics = builder.metrics;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public ChatResponse chat(ChatRequest request) {
+        return schedule(new Call("chat", request), () -> delegate.chat(request));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages) {
+        return schedule(new Call("generate", messages), () -> delegate.generate(messages));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, List<ToolSpecification> toolSpecifications) {
+        return schedule(new Call("generate", List.of(messages, toolSpecifications)),
+                () -> delegate.generate(messages, toolSpecifications));
+    }
+
+    @Override
+    public Response<AiMessage> generate(List<ChatMessage> messages, ToolSpecification toolSpecification) {
+        return schedule(new Call("generateWithTool", List.of(messages, toolSpecification)),
+                () -> delegate.generate(messages, toolSpecification));
+    }
+
+    @Override
+    public ChatRequestParameters defaultRequestParameters() {
+        return delegate.defaultRequestParameters();
+    }
+
+    @Override
+    public Set<Capability> supportedCapabilities() {
+        return delegate.supportedCapabilities();
+    }
+
+    // ============ REGROUPEMENT ============
+
+    @SuppressWarnings("unchecked")
+    private <T> T schedule(Call call, Supplier<T> upstream) {
+        calls.incrementAndGet();
+        CompletableFuture<Object> mine = new CompletableFuture<>();
+        CompletableFuture<Object> leader = pending.putIfAbsent(call, mine);
+        if (leader != null) {
+            coalesced.incrementAndGet();
+            try {
+                return (T) leader.join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof Error error) {
+                    throw error;
+                }
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            T result = withRetries(upstream);
+            mine.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // Error compris : sinon les appelants regroupés attendraient indéfiniment
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            pending.remove(call, mine);
+        }
+    }
+
+    // ============ REPRISES ============
+
+    private <T> T withRetries(Supplier<T> upstream) {
+        for (int attempt = 0; ; attempt++) {
+            acquire();
+            try {
+                upstreamCalls.incrementAndGet();
+                return upstream.get();
+            } catch (RuntimeException e) {
+                if (attempt >= maxRetries || !retryable.test(e)) {
+                    failures.incrementAndGet();
+                    throw e;
+                }
+                retries.incrementAndGet();
+            } finally {
+                inFlight.release();
+            }
+            // L'attente se fait hors de la limite d'appels en cours : les autres requêtes passent
+            sleep(backoff(attempt));
+        }
+    }
+
+    private long backoff(int attempt) {
+        long ceiling = Math.min(maxBackoff.toNanos(), initialBackoff.toNanos() << Math.min(attempt, 20));
+        return ThreadLocalRandom.current().nextLong(ceiling + 1);
+    }
+
+    // ============ FILE D'ATTENTE ============
+
+    // Une place parmi les appels en cours, puis un jeton : le débit est mesuré au départ des appels
+    private void acquire() {
+        long start = System.nanoTime();
+        maxQueueDepth.accumulateAndGet(queueDepth.incrementAndGet(), Math::max);
+        if (metrics != null) {
+            metrics.llmCallQueued();
+        }
+        try {
+            inFlight.acquire();
+            try {
+                sleep(reserveToken());
+            } catch (RuntimeException e) {
+                inFlight.release();
+                throw e;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Appel au LM interrompu dans la file", e);
+        } finally {
+            long waited = System.nanoTime() - start;
+            queueDepth.decrementAndGet();
+            queueWait.record(waited);
+            if (metrics != null) {
+                metrics.llmCallDequeued(waited);
+            }
+        }
+    }
+
+    // Réserve un jeton et rend l'attente avant de l'utiliser (le seau peut être emprunté sur l'avenir)
+    private synchronized long reserveToken() {
+        long now = System.nanoTime();
+        tokens = Math.min(burst, tokens + (now - refilledAt) * tokensPerNano);
+        refilledAt = now;
+        tokens -= 1;
+        return tokens >= 0 ? 0 : (long) (-tokens / tokensPerNano);
+    }
+
+    private static void sleep(long nanos) {
+        if (nanos <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(Duration.ofNanos(nanos));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Appel au LM interrompu", e);
+        }
+    }
+
+    /**
+     * Erreurs passagères : statut HTTP de quota (429) ou d'indisponibilité (500, 502, 503, 504),
+     * erreurs réseau ({@link IOException}, dont les délais HTTP dépassés) et {@link TimeoutException}.
+     * Seul le statut en tête du message compte : un « 500 » dans le corps d'une erreur 400 n'est pas retenté.
+     */
+    public static boolean isTransient(Throwable error) {
+        for (Throwable e = error; e != null; e = e.getCause()) {
+            if (e instanceof IOException || e instanceof TimeoutException) {
+                return true;
+            }
+            if (e.getMessage() != null) {
+                Matcher status = HTTP_STATUS.matcher(e.getMessage());
+                if (status.find() && TRANSIENT_STATUSES.contains(Integer.parseInt(status.group(1)))) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    public int queueDepth() {
+        return queueDepth.get();
+    }
+
+    public String stats() {
+        LatencyHistogram.Snapshot wait = queueWait.snapshot();
+        return String.format("Ordonnanceur LM : %d appels, %d envoyés, %d regroupés, %d reprises, %d échecs ; "
+                        + "file : %d en attente (max %d), attente p50 %.1f ms, p99 %.1f ms, max %.1f ms",
+                calls.get(), upstreamCalls.get(), coalesced.get(), retries.get(), failures.get(),
+                queueDepth.get(), maxQueueDepth.get(), wait.p50(), wait.p99(), wait.maxMillis());
+    }
+
+    public static class Builder {
+
+        private ChatLanguageModel delegate;
+        private double requestsPerSecond = 1;
+        private int burst = 4;
+        private int maxInFlight = 4;
+        private int maxRetries = 4;
+        private Duration initialBackoff = Duration.ofMillis(500);
+        private Duration maxBackoff = Duration.ofSeconds(16);
+        private Predicate<Throwable> retryable = ScheduledChatModel::isTransient;
+        private RagMetrics metrics;
+
+        public Builder delegate(ChatLanguageModel delegate) {
+            this.delegate = delegate;
+            return this;
+        }
+
+        /**
+         * Débit établi (le quota du fournisseur, par exemple 15 requêtes par minute = 0.25).
+         */
+        public Builder requestsPerSecond(double requestsPerSecond) {
+            this.requestsPerSecond = requestsPerSecond;
+            return this;
+        }
+
+        /**
+         * Taille du seau : appels qui peuvent partir d'affilée après un temps calme.
+         */
+        public Builder burst(int burst) {
+            this.burst = burst;
+            return this;
+        }
+
+        public Builder maxInFlight(int maxInFlight) {
+            this.maxInFlight = maxInFlight;
+            return this;
+        }
+
+        /**
+         * Nouvelles tentatives après une erreur passagère (0 : aucune).
+         */
+        public Builder maxRetries(int maxRetries) {
+            this.maxRetries = maxRetries;
+            return this;
+        }
+
+        public Builder backoff(Duration initialBackoff, Duration maxBackoff) {
+            this.initialBackoff = initialBackoff;
+            this.maxBackoff = maxBackoff;
+            return this;
+        }
+
+        /**
+         * Erreurs à retenter ; par défaut {@link ScheduledChatModel#isTransient}.
+         */
+        public Builder retryable(Predicate<Throwable> retryable) {
+            this.retryable = retryable;
+            return this;
+        }
+
+        public Builder metrics(RagMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        public ScheduledChatModel build() {
+            if (delegate == null) {
+                throw new IllegalArgumentException("delegate est obligatoire");
+            }
+            if (requestsPerSecond <= 0 || burst < 1 || maxInFlight < 1 || maxRetries < 0) {
+                throw new IllegalArgumentException("requestsPerSecond, burst et maxInFlight doivent être positifs");
+            }
+            return new ScheduledChatModel(this);
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package com.Project;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.embedding.EmbeddingModel;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Cache de réponses devant l'assistant : une question identique ou très proche
+ * (similarité cosinus au-dessus du seuil) d'une question déjà posée reçoit la réponse
+ * mémorisée, sans recherche ni appel à Gemini.
+ * <p>
+ * La clé est la question seule : le cache ne vaut que pour des questions indépendantes.
+ * Avec une mémoire de conversation, il n'est consulté qu'en début de conversation, une question
+ * de suivi (« et la deuxième ? ») dépendant des échanges précédents ; une réponse servie par le
+ * cache est alors versée dans la mémoire pour que la suite de la conversation la connaisse.
+ * C'est pourquoi il sert dans {@link AssistantServer}, où chaque nouvelle session commence une
+ * conversation, et pas dans les programmes console, qui n'en ont qu'une. Une question identique
+ * déjà en cours de calcul attend cette réponse plutôt que de rappeler Gemini.
+ */
+public class SemanticResponseCache {
+
+    private record CachedAnswer(float[] vector, String answer) {
+    }
+
+    private final EmbeddingModel embeddingModel;
+    private final double minSimilarity;
+    private final BoundedCache<String, CachedAnswer> answers;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong followUps = new AtomicLong();
+    private final Map<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    public SemanticResponseCache(EmbeddingModel embeddingModel, double minSimilarity, int maxSize, Duration ttl) {
+        this.embeddingModel = embeddingModel;
+        this.minSimilarity = minSimilarity;
+        this.answers = new BoundedCache<>(maxSize, ttl);
+    }
+
+    /**
+     * Comme {@link #answer(String, Function)} pour un assistant doté d'une mémoire : le cache n'est
+     * consulté que si la mémoire ne contient aucun échange, sinon la réponse est calculée sans
+     * passer par le cache ni y entrer.
+     */
+    public String answer(String question, ChatMemory memory, Function<String, String> compute) {
+        if (!memory.messages().stream().allMatch(SystemMessage.class::isInstance)) {
+            followUps.incrementAndGet();
+            return compute.apply(question);
+        }
+        AtomicBoolean computed = new AtomicBoolean(false);
+        String answer = answer(question, q -> {
+            computed.set(true);
+            return compute.apply(q);
+        });
+        if (!computed.get()) {
+            // L'assistant n'a pas vu l'échange : la mémoire le reçoit comme s'il y était passé
+            memory.add(UserMessage.from(question));
+            memory.add(AiMessage.from(answer));
+        }
+        return answer;
+    }
+
+    /**
+     * Réponse en cache si une question assez proche existe, sinon calculée puis mémorisée.
+     */
+    public String answer(String question, Function<String, String> compute) {
+        String key = normalize(question);
+
+        // 1. Même question (à la casse et aux espaces près) : pas besoin d'embedding
+        CachedAnswer exact = answers.get(key);
+        if (exact != null) {
+            hits.incrementAndGet();
+            return exact.answer();
+        }
+
+        // 2. Question proche : comparaison des embeddings
+        float[] vector = VectorMath.normalize(embeddingModel.embed(question).content().vector());
+        String closestKey = null;
+        float closest = (float) minSimilarity;
+        for (Map.Entry<String, CachedAnswer> entry : answers.snapshot()) {
+            float similarity = VectorMath.dot(entry.getValue().vector(), 0, vector, vector.length);
+            if (similarity >= closest) {
+                closest = similarity;
+                closestKey = entry.getKey();
+            }
+        }
+        if (closestKey != null) {
+            CachedAnswer similar = answers.get(closestKey);   // rafraîchit l'ordre LRU
+            if (similar != null) {
+                hits.incrementAndGet();
+                return similar.answer();
+            }
+        }
+
+        // 3. Même question en cours de calcul (sessions ouvertes ensemble) : sa réponse est attendue
+        CompletableFuture<String> pending = new CompletableFuture<>();
+        CompletableFuture<String> running = inFlight.putIfAbsent(key, pending);
+        if (running != null) {
+            try {
+                String answer = running.join();
+                hits.incrementAndGet();
+                return answer;
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+
+        // 4. Absente : appel réel puis mise en cache
+        misses.incrementAndGet();
+        try {
+            String answer = compute.apply(question);
+            answers.put(key, new CachedAnswer(vector, answer));
+            pending.complete(answer);
+            return answer;
+        } catch (Throwable e) {
+            pending.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, pending);
+        }
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public double hitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0 : hits.get() / (double) total;
+    }
+
+    public String stats() {
+        return String.format("Cache de réponses : %d hits, %d misses (%.0f %%), %d questions de suivi hors cache, %d entrées, %d évictions",
+                hits.get(), misses.get(), 100 * hitRate(), followUps.get(), answers.size(), answers.evictions());
+    }
+
+    static String normalize(String text) {
+        return text.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+}
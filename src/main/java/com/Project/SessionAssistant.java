@@ -0,0 +1,8 @@
+package com.Project;
+
+import dev.langchain4j.service.MemoryId;
+import dev.langchain4j.service.UserMessage;
+
+public interface SessionAssistant {
+    String chat(@MemoryId String sessionId, @UserMessage String userMessage);
+}
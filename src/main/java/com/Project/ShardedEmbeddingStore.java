@@ -0,0 +1,310 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.io.Serial;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Magasin d'embeddings réparti sur N magasins (shards), utilisable partout où un
+ * EmbeddingStore est attendu (EmbeddingStoreContentRetriever, HybridContentRetriever...).
+ * <p>
+ * Chaque segment va dans un shard choisi par l'empreinte de son id, ou, avec
+ * {@code partitionBy(clé)}, par une métadonnée (par exemple {@code file_name} : un document
+ * par shard, les documents suivants répartis à tour de rôle). Une recherche interroge tous les
+ * shards en parallèle sur un ForkJoinPool, chacun rend ses {@code maxResults} meilleurs, et les
+ * listes triées sont fusionnées par un tas (k listes, un curseur par liste).
+ * <p>
+ * Les shards sont des magasins ordinaires ({@link VectorEmbeddingStore} par défaut) : un
+ * parcours exact réparti sur autant de shards que de cœurs donne exactement les mêmes résultats,
+ * avec une latence divisée d'autant. Un remplacement ({@link #replaceAll}) exclut les recherches le
+ * temps de passer sur tous les shards concernés.
+ */
+public class ShardedEmbeddingStore implements ReplaceableEmbeddingStore {
+
+    private final List<EmbeddingStore<TextSegment>> shards;
+    private final String partitionKey;
+    private final ForkJoinPool pool;
+    // Valeur de la métadonnée de partition -> shard, attribué à tour de rôle à la première rencontre
+    private final Map<Object, Integer> partitions = new ConcurrentHashMap<>();
+    private final AtomicInteger nextPartition = new AtomicInteger();
+    // Les recherches partagent le verrou, un remplacement le prend seul
+    private final ReadWriteLock replacing = new ReentrantReadWriteLock();
+
+    private ShardedEmbeddingStore(Builder builder) {
+        this.shards = new ArrayList<>(builder.shards);
+        for (int i = 0; i < builder.shards; i++) {
+            shards.add(builder.shardFactory.get());
+        }
+        this.partitionKey = builder.partitionKey;
+        this.pool = builder.pool;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ============ AJOUT ============
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(segment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, segments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        if (segments != null && segments.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Autant de segments que d'embeddings sont attendus");
+        }
+        List<List<Integer>> perShard = new ArrayList<>(shards.size());
+        for (int s = 0; s < shards.size(); s++) {
+            perShard.add(new ArrayList<>());
+        }
+        for (int i = 0; i < embeddings.size(); i++) {
+            perShard.get(shardOf(ids.get(i), segments == null ? null : segments.get(i))).add(i);
+        }
+
+        // Chaque shard reçoit ses segments en un seul addAll, les shards en parallèle
+        forEachShard(s -> {
+            List<Integer> positions = perShard.get(s);
+            if (positions.isEmpty()) {
+                return;
+            }
+            List<String> shardIds = new ArrayList<>(positions.size());
+            List<Embedding> shardEmbeddings = new ArrayList<>(positions.size());
+            List<TextSegment> shardSegments = segments == null ? null : new ArrayList<>(positions.size());
+            for (int i : positions) {
+                shardIds.add(ids.get(i));
+                shardEmbeddings.add(embeddings.get(i));
+                if (shardSegments != null) {
+                    shardSegments.add(segments.get(i));
+                }
+            }
+            shards.get(s).addAll(shardIds, shardEmbeddings, shardSegments);
+        });
+    }
+
+    private int shardOf(String id, TextSegment segment) {
+        if (partitionKey != null && segment != null) {
+            Object value = segment.metadata().toMap().get(partitionKey);
+            if (value != null) {
+                return partitions.computeIfAbsent(value, v -> nextPartition.getAndIncrement() % shards.size());
+            }
+        }
+        return Math.floorMod(id.hashCode(), shards.size());
+    }
+
+    /**
+     * Retire oldIds puis ajoute les nouveaux embeddings, sans recherche en cours entre les deux.
+     */
+    @Override
+    public void replaceAll(Collection<String> oldIds,
+                           List<String> ids,
+                           List<Embedding> embeddings,
+                           List<TextSegment> segments) {
+        replacing.writeLock().lock();
+        try {
+            removeAll(oldIds);
+            addAll(ids, embeddings, segments);
+        } finally {
+            replacing.writeLock().unlock();
+        }
+    }
+
+    // ============ SUPPRESSION ============
+
+    // Le shard d'un id n'est pas mémorisé : la suppression est envoyée à tous
+    @Override
+    public void removeAll(Collection<String> ids) {
+        forEachShard(s -> shards.get(s).removeAll(ids));
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        forEachShard(s -> shards.get(s).removeAll(filter));
+    }
+
+    @Override
+    public void removeAll() {
+        forEachShard(s -> shards.get(s).removeAll());
+        partitions.clear();
+        nextPartition.set(0);
+    }
+
+    // ============ RECHERCHE ============
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        if (request.maxResults() <= 0) {
+            return new EmbeddingSearchResult<>(List.of());
+        }
+        List<List<EmbeddingMatch<TextSegment>>> perShard = new ArrayList<>(shards.size());
+        for (int s = 0; s < shards.size(); s++) {
+            perShard.add(List.of());
+        }
+        replacing.readLock().lock();
+        try {
+            forEachShard(s -> perShard.set(s, shards.get(s).search(request).matches()));
+        } finally {
+            replacing.readLock().unlock();
+        }
+        return new EmbeddingSearchResult<>(merge(perShard, request.maxResults()));
+    }
+
+    // Fusion des listes triées : le tas contient la tête de chaque liste, {shard, position}
+    private static List<EmbeddingMatch<TextSegment>> merge(List<List<EmbeddingMatch<TextSegment>>> perShard,
+                                                           int maxResults) {
+        PriorityQueue<int[]> heads = new PriorityQueue<>(perShard.size(), (a, b) -> Double.compare(
+                perShard.get(b[0]).get(b[1]).score(), perShard.get(a[0]).get(a[1]).score()));
+        for (int s = 0; s < perShard.size(); s++) {
+            if (!perShard.get(s).isEmpty()) {
+                heads.add(new int[]{s, 0});
+            }
+        }
+        List<EmbeddingMatch<TextSegment>> merged = new ArrayList<>(maxResults);
+        while (merged.size() < maxResults && !heads.isEmpty()) {
+            int[] head = heads.poll();
+            List<EmbeddingMatch<TextSegment>> matches = perShard.get(head[0]);
+            merged.add(matches.get(head[1]));
+            if (++head[1] < matches.size()) {
+                heads.add(head);
+            }
+        }
+        return merged;
+    }
+
+    // ============ PARALLÉLISME ============
+
+    // Un seul shard : pas de passage par le pool
+    private void forEachShard(IntConsumer action) {
+        if (shards.size() == 1) {
+            action.accept(0);
+        } else {
+            pool.invoke(new ShardTask(action, 0, shards.size()));
+        }
+    }
+
+    // Découpe récursive de l'intervalle de shards, une tâche par shard en bout de chaîne
+    private static final class ShardTask extends RecursiveAction {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        // Jamais sérialisée : RecursiveAction est Serializable, pas l'action
+        private final transient IntConsumer action;
+        private final int from;
+        private final int to;
+
+        ShardTask(IntConsumer action, int from, int to) {
+            this.action = action;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                action.accept(from);
+                return;
+            }
+            int middle = (from + to) >>> 1;
+            invokeAll(new ShardTask(action, from, middle), new ShardTask(action, middle, to));
+        }
+    }
+
+    public int shardCount() {
+        return shards.size();
+    }
+
+    public static class Builder {
+
+        private int shards = Runtime.getRuntime().availableProcessors();
+        private Supplier<EmbeddingStore<TextSegment>> shardFactory = VectorEmbeddingStore::new;
+        private String partitionKey;
+        private ForkJoinPool pool = ForkJoinPool.commonPool();
+
+        /**
+         * Nombre de shards ; par défaut un par cœur.
+         */
+        public Builder shards(int shards) {
+            this.shards = shards;
+            return this;
+        }
+
+        /**
+         * Création de chaque shard ; par défaut {@link VectorEmbeddingStore}.
+         */
+        public Builder shardFactory(Supplier<EmbeddingStore<TextSegment>> shardFactory) {
+            this.shardFactory = shardFactory;
+            return this;
+        }
+
+        /**
+         * Répartition par valeur de métadonnée (un document par shard avec {@code file_name})
+         * au lieu de l'empreinte de l'id.
+         */
+        public Builder partitionBy(String metadataKey) {
+            this.partitionKey = metadataKey;
+            return this;
+        }
+
+        public Builder pool(ForkJoinPool pool) {
+            this.pool = pool;
+            return this;
+        }
+
+        public ShardedEmbeddingStore build() {
+            if (shards < 1) {
+                throw new IllegalArgumentException("shards doit être positif");
+            }
+            return new ShardedEmbeddingStore(this);
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package com.Project;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Noyaux SIMD ; chargée seulement si le module jdk.incubator.vector est présent (voir {@link VectorMath}).
+ */
+final class SimdKernels {
+
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    // Autant d'octets que de float par registre (8 octets pour 8 float en AVX2) ; null sous 8 voies
+    private static final VectorSpecies<Byte> BYTE_SPECIES = SPECIES.length() < 8
+            ? null
+            : VectorSpecies.of(byte.class, VectorShape.forBitSize(SPECIES.length() * Byte.SIZE));
+
+    static final boolean BYTE_DOT = BYTE_SPECIES != null;
+
+    private SimdKernels() {
+    }
+
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector va = FloatVector.fromArray(SPECIES, a, aOffset + i);
+            FloatVector vb = FloatVector.fromArray(SPECIES, b, bOffset + i);
+            acc = va.fma(vb, acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Produit scalaire entre des codes int8 et un vecteur float, octets convertis en float par registre.
+     */
+    static float dot(byte[] codes, int offset, float[] query, int length) {
+        FloatVector acc = FloatVector.zero(SPECIES);
+        int upper = SPECIES.loopBound(length);
+        int i = 0;
+        for (; i < upper; i += SPECIES.length()) {
+            FloatVector vc = (FloatVector) ByteVector.fromArray(BYTE_SPECIES, codes, offset + i)
+                    .castShape(SPECIES, 0);
+            acc = vc.fma(FloatVector.fromArray(SPECIES, query, i), acc);
+        }
+        float sum = acc.reduceLanes(VectorOperators.ADD);
+        for (; i < length; i++) {
+            sum += codes[offset + i] * query[i];
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,57 @@
+package com.Project;
+
+import dev.langchain4j.service.TokenStream;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Affiche une réponse en streaming au fil des tokens, et mesure pour chaque requête
+ * le temps jusqu'au premier token (ce que l'utilisateur perçoit) et le temps total.
+ * <p>
+ * Les mesures partent de l'appel à l'assistant : AiServices route, recherche et agrège le
+ * contexte avant de rendre le TokenStream, ce temps fait partie de l'attente du premier token.
+ */
+public final class StreamingConsole {
+
+    private StreamingConsole() {
+    }
+
+    /**
+     * Appelle l'assistant, démarre le flux, affiche les tokens dès leur arrivée et attend la fin de la réponse.
+     *
+     * @param chat appel à l'assistant, par exemple {@code () -> assistant.chat(question)}
+     * @return la réponse complète
+     */
+    public static String print(Supplier<TokenStream> chat) {
+        long start = System.nanoTime();
+        TokenStream tokenStream = chat.get();
+        long[] firstToken = {0};
+        CompletableFuture<String> done = new CompletableFuture<>();
+
+        tokenStream
+                .onPartialResponse(token -> {
+                    if (firstToken[0] == 0) {
+                        firstToken[0] = System.nanoTime();
+                    }
+                    System.out.print(token);
+                    System.out.flush();
+                })
+                .onCompleteResponse(response -> done.complete(response.aiMessage().text()))
+                .onError(done::completeExceptionally)
+                .start();
+
+        try {
+            String answer = done.join();
+            long end = System.nanoTime();
+            long ttft = firstToken[0] == 0 ? end : firstToken[0];
+            System.out.printf("%n   (premier token : %d ms, total : %d ms)%n",
+                    (ttft - start) / 1_000_000, (end - start) / 1_000_000);
+            return answer;
+        } catch (CompletionException e) {
+            System.out.println();
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.Project;
+
+import dev.langchain4j.data.document.Document;
+import dev.langchain4j.data.document.Metadata;
+import org.apache.pdfbox.Loader;
+import org.apache.pdfbox.io.RandomAccessReadBufferedFile;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Lecture d'un PDF par tranches de pages (PDFBox), au lieu d'un seul Document pour tout le fichier.
+ * <p>
+ * Chaque tranche de {@code pagesPerRange} pages est extraite par un thread, avec sa propre
+ * ouverture du fichier (un PDDocument n'est pas partagé entre threads). Les tranches sont
+ * remises au consommateur dans l'ordre des pages, une page = un Document avec la métadonnée
+ * {@code page} (à partir de 1), et {@code section} quand la page commence par un titre. Au plus {@code maxRangesInFlight} tranches sont extraites
+ * d'avance : la mémoire reste bornée quelle que soit la taille du PDF.
+ */
+public class StreamingPdfLoader implements AutoCloseable {
+
+    public static final String PAGE = "page";
+    public static final String SECTION = "section";
+
+    private final int pagesPerRange;
+    private final int maxRangesInFlight;
+    private final ExecutorService extractors;
+
+    private StreamingPdfLoader(Builder builder) {
+        this.pagesPerRange = builder.pagesPerRange;
+        this.maxRangesInFlight = builder.maxRangesInFlight;
+        this.extractors = Executors.newFixedThreadPool(builder.threads, runnable -> {
+            Thread thread = new Thread(runnable, "pdf-extraction");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Extrait le PDF tranche par tranche ; {@code consumer} est appelé sur le thread appelant
+     * avec les pages de chaque tranche, dans l'ordre. Un petit PDF (une seule tranche) est lu
+     * directement sur le thread appelant.
+     */
+    public void load(Path pdf, Consumer<List<Document>> consumer) throws IOException {
+        int pages;
+        try (PDDocument document = open(pdf)) {
+            pages = document.getNumberOfPages();
+            if (pages <= pagesPerRange) {
+                consumer.accept(extract(document, pdf, 1, pages));
+                return;
+            }
+        }
+
+        Deque<CompletableFuture<List<Document>>> window = new ArrayDeque<>();
+        try {
+            for (int first = 1; first <= pages; first += pagesPerRange) {
+                if (window.size() == maxRangesInFlight) {
+                    consumer.accept(window.poll().join());
+                }
+                int start = first;
+                int end = Math.min(first + pagesPerRange - 1, pages);
+                window.add(CompletableFuture.supplyAsync(() -> extractRange(pdf, start, end), extractors));
+            }
+            while (!window.isEmpty()) {
+                consumer.accept(window.poll().join());
+            }
+        } catch (CompletionException e) {
+            window.forEach(pending -> pending.cancel(false));
+            if (e.getCause() instanceof UncheckedIOException io) {
+                throw io.getCause();
+            }
+            throw e;
+        }
+    }
+
+    // ============ EXTRACTION ============
+
+    private static List<Document> extractRange(Path pdf, int firstPage, int lastPage) {
+        try (PDDocument document = open(pdf)) {
+            return extract(document, pdf, firstPage, lastPage);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static List<Document> extract(PDDocument document, Path pdf, int firstPage, int lastPage) throws IOException {
+        PDFTextStripper stripper = new PDFTextStripper();
+        List<Document> pages = new ArrayList<>(lastPage - firstPage + 1);
+        for (int page = firstPage; page <= lastPage; page++) {
+            stripper.setStartPage(page);
+            stripper.setEndPage(page);
+            String text = stripper.getText(document);
+            if (text.isBlank()) {
+                continue;
+            }
+            Metadata metadata = new Metadata()
+                    .put(Document.FILE_NAME, pdf.getFileName().toString())
+                    .put(Document.ABSOLUTE_DIRECTORY_PATH, pdf.toAbsolutePath().getParent().toString())
+                    .put(PAGE, page);
+            String section = heading(text);
+            if (section != null) {
+                metadata.put(SECTION, section);
+            }
+            pages.add(Document.from(text, metadata));
+        }
+        return pages;
+    }
+
+    // Première ligne de texte de la page si elle ressemble à un titre (courte, sans ponctuation
+    // finale) ; les lignes sans lettre avant elle (date, numéro de page en en-tête) sont sautées
+    static String heading(String text) {
+        for (String line : text.split("\\R")) {
+            String trimmed = line.strip();
+            if (trimmed.codePoints().anyMatch(Character::isLetter)) {
+                boolean title = trimmed.length() <= 80 && !trimmed.matches(".*[.,;:]$");
+                return title ? trimmed : null;
+            }
+        }
+        return null;
+    }
+
+    // Fichier lu à la demande : seuls les objets des pages extraites sont chargés
+    private static PDDocument open(Path pdf) throws IOException {
+        return Loader.loadPDF(new RandomAccessReadBufferedFile(pdf.toFile()));
+    }
+
+    @Override
+    public void close() {
+        extractors.shutdown();
+    }
+
+    public static class Builder {
+
+        private int pagesPerRange = 16;
+        private int maxRangesInFlight = 2 * Runtime.getRuntime().availableProcessors();
+        private int threads = Runtime.getRuntime().availableProcessors();
+
+        public Builder pagesPerRange(int pagesPerRange) {
+            this.pagesPerRange = pagesPerRange;
+            return this;
+        }
+
+        /**
+         * Nombre maximal de tranches extraites et pas encore consommées.
+         */
+        public Builder maxRangesInFlight(int maxRangesInFlight) {
+            this.maxRangesInFlight = maxRangesInFlight;
+            return this;
+        }
+
+        public Builder threads(int threads) {
+            this.threads = threads;
+            return this;
+        }
+
+        public StreamingPdfLoader build() {
+            if (pagesPerRange < 1 || maxRangesInFlight < 1 || threads < 1) {
+                throw new IllegalArgumentException("pagesPerRange, maxRangesInFlight et threads doivent être positifs");
+            }
+            return new StreamingPdfLoader(this);
+        }
+    }
+}
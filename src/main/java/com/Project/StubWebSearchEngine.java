@@ -0,0 +1,48 @@
+package com.Project;
+
+import dev.langchain4j.web.search.WebSearchEngine;
+import dev.langchain4j.web.search.WebSearchInformationResult;
+import dev.langchain4j.web.search.WebSearchOrganicResult;
+import dev.langchain4j.web.search.WebSearchRequest;
+import dev.langchain4j.web.search.WebSearchResults;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Moteur de recherche Web local, sans réseau : renvoie des résultats fixes après un délai
+ * injecté. Sert à tester le comportement des échéances sans dépendre de Tavily.
+ */
+public class StubWebSearchEngine implements WebSearchEngine {
+
+    private final Duration delay;
+    private final List<WebSearchOrganicResult> results;
+
+    public StubWebSearchEngine(Duration delay) {
+        this(delay, List.of(WebSearchOrganicResult.from(
+                "Retrieval-augmented generation",
+                URI.create("https://example.org/rag"),
+                "Le RAG combine une recherche de documents et un modèle de langage.",
+                null)));
+    }
+
+    public StubWebSearchEngine(Duration delay, List<WebSearchOrganicResult> results) {
+        this.delay = delay;
+        this.results = results;
+    }
+
+    @Override
+    public WebSearchResults search(WebSearchRequest request) {
+        try {
+            Thread.sleep(delay.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Recherche interrompue", e);
+        }
+        int limit = request.maxResults() == null ? results.size() : Math.min(request.maxResults(), results.size());
+        return WebSearchResults.from(
+                WebSearchInformationResult.from((long) results.size()),
+                results.subList(0, limit));
+    }
+}
@@ -1,39 +1,28 @@
 package com.Project;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.DocumentParser;
-import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
-import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
-import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
-import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.time.Duration;
 import java.util.Scanner;
 
 public class Test1_RagNaif {
 
     public static void main(String[] args) throws Exception {
 
-        // ============ Création du ChatModel ============
+        // ============ Création du ChatModel (streaming) ============
         String llmKey = System.getenv("GEMINI_API_KEY");
-        ChatLanguageModel model = GoogleAiGeminiChatModel.builder()
+        StreamingChatLanguageModel model = GoogleAiGeminiStreamingChatModel.builder()
                 .apiKey(llmKey)
                 .modelName("gemini-2.0-flash-exp")
                 .temperature(0.3)
@@ -41,55 +30,62 @@ public class Test1_RagNaif {
 
         // ============ PHASE 1 : INGESTION ============
 
-        // 1. Récupérer le Path du fichier PDF
-        URL fileUrl = Test1_RagNaif.class.getResource("/rag.pdf");
-        Path path = Paths.get(fileUrl.toURI());
-
-        // 2. Créer le parser PDF
-        DocumentParser parser = new ApacheTikaDocumentParser();
-
-        // 3. Charger le document
-        Document document = FileSystemDocumentLoader.loadDocument(path, parser);
-
-        // 4. Découper le document en morceaux (chunks)
-        DocumentSplitter splitter = DocumentSplitters.recursive(600, 0);
-        List<TextSegment> segments = splitter.split(document);
-
-        // 5. Créer le modèle d'embeddings
+        // 1. Créer le modèle d'embeddings et le pipeline : parser, découper (600, 0) et calculer
+        //    les embeddings au premier lancement ; ensuite l'index persistant est relu depuis le disque
         EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
+        IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .maxSegmentSize(600)
+                .maxOverlap(0)
+                .build();
 
-        // 6. Créer les embeddings pour tous les segments
-        Response<List<Embedding>> response = embeddingModel.embedAll(segments);
-        List<Embedding> embeddings = response.content();
-
-        // 7. Stocker dans un magasin d'embeddings
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
-        embeddingStore.addAll(embeddings, segments);
-
-        System.out.println(" Phase d'ingestion terminée !");
-        System.out.println("   Nombre de segments créés : " + segments.size());
+        // 2. Stocker dans un magasin d'embeddings
+        EmbeddingStore<TextSegment> embeddingStore = EmbeddingStores.create();
+
+        // 3. -Drag.documents.dir=... : répertoire surveillé, les PDF ajoutés, modifiés ou supprimés
+        //    sont pris en compte sans redémarrer ; sinon le PDF fourni avec le projet
+        String documentsDir = System.getProperty("rag.documents.dir");
+        WatchedDirectoryIngestion watchedDirectory = null;
+        if (documentsDir != null) {
+            watchedDirectory = WatchedDirectoryIngestion.start(Paths.get(documentsDir), pipeline, embeddingStore);
+            System.out.println(" Phase d'ingestion terminée !");
+            System.out.println("   Documents indexés : " + watchedDirectory.documents().size()
+                    + " (répertoire surveillé : " + documentsDir + ")");
+        } else {
+            URL fileUrl = Test1_RagNaif.class.getResource("/rag.pdf");
+            Path path = Paths.get(fileUrl.toURI());
+            PersistentEmbeddingIndex.Contents contents = pipeline.ingest(path);
+            pipeline.close();
+            embeddingStore.addAll(contents.embeddings(), contents.segments());
+
+            System.out.println(" Phase d'ingestion terminée !");
+            System.out.println("   Nombre de segments créés : " + contents.segments().size());
+        }
 
         // ============ PHASE 2 : RÉCUPÉRATION ET GÉNÉRATION ============
 
-        // 8. Créer le ContentRetriever
+        // 4. Créer le ContentRetriever ; l'embedding d'une question déjà posée est réutilisé
+        CachedEmbeddingModel queryEmbeddingModel = new CachedEmbeddingModel(embeddingModel, 1000, Duration.ofMinutes(30));
         ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
                 .embeddingStore(embeddingStore)
-                .embeddingModel(embeddingModel)
+                .embeddingModel(queryEmbeddingModel)
                 .maxResults(2)              // 2 résultats les plus pertinents
                 .minScore(0.5)              // Score minimum de 0.5
                 .build();
 
-        // 9. Créer une mémoire pour la conversation
-        ChatMemory chatMemory = MessageWindowChatMemory.withMaxMessages(10);
+        // 5. Créer une mémoire pour la conversation
+        TokenBudgetChatMemory chatMemory = TokenBudgetChatMemory.builder()
+                .maxTokens(1500)        // budget en tokens plutôt qu'en messages
+                .build();
 
-        // 10. Créer l'assistant
-        Assistant assistant = AiServices.builder(Assistant.class)
-                .chatLanguageModel(model)
+        // 6. Créer l'assistant
+        StreamingAssistant assistant = AiServices.builder(StreamingAssistant.class)
+                .streamingChatLanguageModel(model)
                 .chatMemory(chatMemory)
                 .contentRetriever(contentRetriever)
                 .build();
 
-        // 11. Poser des questions en boucle
+        // 7. Poser des questions en boucle
         Scanner scanner = new Scanner(System.in);
         System.out.println("\n Assistant RAG prêt !");
         System.out.println("   Tapez 'quit' pour quitter.\n");
@@ -99,6 +95,8 @@ public class Test1_RagNaif {
             String question = scanner.nextLine();
 
             if ("quit".equalsIgnoreCase(question.trim())) {
+                System.out.println(queryEmbeddingModel.stats());
+                System.out.println(chatMemory.stats());
                 System.out.println("Au revoir !");
                 break;
             }
@@ -107,10 +105,17 @@ public class Test1_RagNaif {
                 continue;
             }
 
-            String reponse = assistant.chat(question);
-            System.out.println("\n Réponse : " + reponse + "\n");
+            // La réponse s'affiche au fil des tokens
+            System.out.print("\n Réponse : ");
+            StreamingConsole.print(() -> assistant.chat(question));
+            System.out.println("   (" + chatMemory.lastPromptReport() + ")");
+            System.out.println();
         }
 
         scanner.close();
+        if (watchedDirectory != null) {
+            watchedDirectory.close();
+            pipeline.close();
+        }
     }
 }
@@ -1,90 +1,81 @@
 package com.Project;
 
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.DocumentParser;
-import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
-import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
-import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
-import dev.langchain4j.model.output.Response;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
 import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.List;
 import java.util.Scanner;
-import java.util.logging.ConsoleHandler;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class Test2_Logging {
 
     public static void main(String[] args) throws Exception {
 
-        // 🔧 Configurer le logger AVANT tout
-        configureLogger();
+        // 🔧 Mesures par étape ; -Drag.log.payloads=0.1 journalise 10 % des échanges avec le LM
+        RagMetrics metrics = RagMetrics.fromSystemProperties();
 
-        // ============ Création du ChatModel avec logging activé ============
+        // ============ Création du ChatModel (streaming) instrumenté ============
         String llmKey = System.getenv("GEMINI_API_KEY");
-        ChatLanguageModel model = GoogleAiGeminiChatModel.builder()
+        StreamingChatLanguageModel model = new InstrumentedStreamingChatModel(GoogleAiGeminiStreamingChatModel.builder()
                 .apiKey(llmKey)
                 .modelName("gemini-2.0-flash-exp")
                 .temperature(0.3)
-                .logRequestsAndResponses(true)  // ← LOGGING ACTIVÉ
-                .build();
+                .logRequestsAndResponses(Boolean.getBoolean("rag.log.http"))  // trace HTTP brute, à la demande
+                .build(), metrics);
 
         // ============ PHASE 1 : INGESTION ============
         URL fileUrl = Test2_Logging.class.getResource("/rag.pdf");
         Path path = Paths.get(fileUrl.toURI());
 
-        DocumentParser parser = new ApacheTikaDocumentParser();
-        Document document = FileSystemDocumentLoader.loadDocument(path, parser);
-
-        DocumentSplitter splitter = DocumentSplitters.recursive(600, 0);
-        List<TextSegment> segments = splitter.split(document);
-
         EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
-        Response<List<Embedding>> response = embeddingModel.embedAll(segments);
-        List<Embedding> embeddings = response.content();
+        PersistentEmbeddingIndex.Contents contents;
+        try (IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .maxSegmentSize(600)
+                .maxOverlap(0)
+                .build()) {
+            contents = pipeline.ingest(path);
+        }
+        List<TextSegment> segments = contents.segments();
+        List<Embedding> embeddings = contents.embeddings();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = EmbeddingStores.create();
         embeddingStore.addAll(embeddings, segments);
 
         System.out.println(" Phase d'ingestion terminée !");
 
         // ============ PHASE 2 : RÉCUPÉRATION ET GÉNÉRATION ============
         ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
-                .embeddingStore(embeddingStore)
-                .embeddingModel(embeddingModel)
+                .embeddingStore(new InstrumentedEmbeddingStore(embeddingStore, metrics))
+                .embeddingModel(new InstrumentedEmbeddingModel(embeddingModel, metrics))
                 .maxResults(2)
                 .minScore(0.5)
                 .build();
 
-        ChatMemory chatMemory = MessageWindowChatMemory.withMaxMessages(10);
+        TokenBudgetChatMemory chatMemory = TokenBudgetChatMemory.builder()
+                .maxTokens(1500)        // budget en tokens plutôt qu'en messages
+                .build();
 
-        Assistant assistant = AiServices.builder(Assistant.class)
-                .chatLanguageModel(model)
+        StreamingAssistant assistant = AiServices.builder(StreamingAssistant.class)
+                .streamingChatLanguageModel(model)
                 .chatMemory(chatMemory)
                 .contentRetriever(contentRetriever)
                 .build();
 
         // ============ POSER DES QUESTIONS ============
         Scanner scanner = new Scanner(System.in);
-        System.out.println("\n Assistant RAG avec Logging prêt !");
+        System.out.println("\n Assistant RAG avec mesures prêt !");
         System.out.println("   Tapez 'quit' pour quitter.\n");
 
         while (true) {
@@ -92,6 +83,8 @@ public class Test2_Logging {
             String question = scanner.nextLine();
 
             if ("quit".equalsIgnoreCase(question.trim())) {
+                System.out.println(metrics.snapshot().summary());
+                System.out.println(chatMemory.stats());
                 System.out.println("Au revoir !");
                 break;
             }
@@ -100,24 +93,13 @@ public class Test2_Logging {
                 continue;
             }
 
-            String reponse = assistant.chat(question);
-            System.out.println("\n Réponse : " + reponse + "\n");
+            System.out.print("\n Réponse : ");
+            metrics.time(RagMetrics.Stage.TOTAL, () -> StreamingConsole.print(() -> assistant.chat(question)));
+            System.out.println("   (" + chatMemory.lastPromptReport() + ")");
+            System.out.println();
         }
 
         scanner.close();
-    }
-
-    /**
-     * Configure le logger pour afficher les détails des requêtes/réponses
-     */
-    private static void configureLogger() {
-        Logger packageLogger = Logger.getLogger("dev.langchain4j");
-        packageLogger.setLevel(Level.FINE);
-
-        ConsoleHandler handler = new ConsoleHandler();
-        handler.setLevel(Level.FINE);
-        packageLogger.addHandler(handler);
-
-        System.out.println(" Logging activé !\n");
+        metrics.payloadLog().close();
     }
 }
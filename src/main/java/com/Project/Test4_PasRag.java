@@ -1,20 +1,10 @@
 package com.Project;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.DocumentParser;
-import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
 import dev.langchain4j.data.embedding.Embedding;
 import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
-import dev.langchain4j.model.chat.ChatLanguageModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
 import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
-import dev.langchain4j.model.output.Response;
 import dev.langchain4j.rag.DefaultRetrievalAugmentor;
 import dev.langchain4j.rag.RetrievalAugmentor;
 import dev.langchain4j.rag.content.retriever.ContentRetriever;
@@ -23,32 +13,38 @@ import dev.langchain4j.rag.query.Query;
 import dev.langchain4j.rag.query.router.QueryRouter;
 import dev.langchain4j.service.AiServices;
 import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
 import dev.langchain4j.model.input.Prompt;
 import dev.langchain4j.model.input.PromptTemplate;
 
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.logging.ConsoleHandler;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class Test4_PasRag {
 
     public static void main(String[] args) throws Exception {
 
-        configureLogger();
+        RagMetrics metrics = RagMetrics.fromSystemProperties();
 
         String llmKey = System.getenv("GEMINI_API_KEY");
-        ChatLanguageModel model = GoogleAiGeminiChatModel.builder()
-                .apiKey(llmKey)
-                .modelName("gemini-2.0-flash-exp")
-                .temperature(0.3)
-                .logRequestsAndResponses(true)
+        // Routeur et réponse passent par l'ordonnanceur : débit du quota (-Drag.llm.rps, 15 par minute
+        // par défaut), 4 appels en cours au plus, prompts identiques regroupés, reprises après 429 ou 5xx
+        ScheduledChatModel model = ScheduledChatModel.builder()
+                .delegate(new InstrumentedChatModel(GoogleAiGeminiChatModel.builder()
+                        .apiKey(llmKey)
+                        .modelName("gemini-2.0-flash-exp")
+                        .temperature(0.3)
+                        .maxRetries(1)      // les reprises sont faites par l'ordonnanceur
+                        .logRequestsAndResponses(Boolean.getBoolean("rag.log.http"))
+                        .build(), metrics))
+                .requestsPerSecond(Double.parseDouble(System.getProperty("rag.llm.rps", "0.25")))
+                .burst(4)
+                .maxInFlight(4)
+                .metrics(metrics)
                 .build();
 
         // ============ PHASE 1 : INGESTION ============
@@ -57,21 +53,28 @@ public class Test4_PasRag {
         URL fileUrl = Test4_PasRag.class.getResource("/rag.pdf");
         Path path = Paths.get(fileUrl.toURI());
 
-        DocumentParser parser = new ApacheTikaDocumentParser();
-        Document document = FileSystemDocumentLoader.loadDocument(path, parser);
-
-        DocumentSplitter splitter = DocumentSplitters.recursive(600, 0);
-        List<TextSegment> segments = splitter.split(document);
-
-        Response<List<Embedding>> response = embeddingModel.embedAll(segments);
-        List<Embedding> embeddings = response.content();
+        PersistentEmbeddingIndex.Contents contents;
+        try (IngestionPipeline pipeline = IngestionPipeline.builder()
+                .embeddingModel(embeddingModel)
+                .maxSegmentSize(600)
+                .maxOverlap(0)
+                .build()) {
+            contents = pipeline.ingest(path);
+        }
+        List<TextSegment> segments = contents.segments();
+        List<Embedding> embeddings = contents.embeddings();
 
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
+        EmbeddingStore<TextSegment> embeddingStore = EmbeddingStores.create();
         embeddingStore.addAll(embeddings, segments);
 
+        // Les requêtes passent par les versions instrumentées ; l'ingestion n'est pas mesurée.
+        // Le cache est partagé par les retrievers et le routeur : une requête n'est calculée qu'une fois
+        CachedEmbeddingModel queryEmbeddingModel = new CachedEmbeddingModel(
+                new InstrumentedEmbeddingModel(embeddingModel, metrics), 1000, Duration.ofMinutes(30));
+
         ContentRetriever contentRetriever = EmbeddingStoreContentRetriever.builder()
-                .embeddingStore(embeddingStore)
-                .embeddingModel(embeddingModel)
+                .embeddingStore(new InstrumentedEmbeddingStore(embeddingStore, metrics))
+                .embeddingModel(queryEmbeddingModel)
                 .maxResults(2)
                 .minScore(0.5)
                 .build();
@@ -106,14 +109,34 @@ public class Test4_PasRag {
             }
         }
 
-        QueryRouter queryRouter = new QueryRouterPourEviterRag();
+        // La réponse « oui / non / peut-être » est réutilisée pour une question déjà posée ou très proche ;
+        // si l'appel au LM échoue, la question passe par le RAG sans que ce choix soit mémorisé
+        CachingQueryRouter routageLm = new CachingQueryRouter(new QueryRouterPourEviterRag(),
+                queryEmbeddingModel, 0.92, 500, Duration.ofMinutes(30), List.of(contentRetriever));
+
+        // Le routeur par embeddings tranche seul les cas nets ; QueryRouterPourEviterRag
+        // (appel au LM) ne sert plus que pour les questions ambiguës
+        EmbeddingQueryRouter queryRouter = EmbeddingQueryRouter.builder()
+                .embeddingModel(queryEmbeddingModel)
+                // Descriptions formulées comme des questions : plus proches des requêtes réelles
+                .description(contentRetriever,
+                        "Questions sur l'intelligence artificielle : qu'est-ce que le RAG, " +
+                                "le fine-tuning, les embeddings, les LLM ?")
+                .noRetrievalDescription(
+                        "Bonjour, merci, au revoir. Quelle est la capitale d'un pays ? " +
+                                "Questions de culture générale sans rapport avec l'IA")
+                .fallback(routageLm)
+                .build();
 
         RetrievalAugmentor retrievalAugmentor = DefaultRetrievalAugmentor.builder()
-                .queryRouter(queryRouter)
+                .queryRouter(new InstrumentedQueryRouter(queryRouter, metrics))
                 .build();
 
         // ============ PHASE 3 : CRÉATION DE L'ASSISTANT ============
-        ChatMemory chatMemory = MessageWindowChatMemory.withMaxMessages(10);
+        TokenBudgetChatMemory chatMemory = TokenBudgetChatMemory.builder()
+                .maxTokens(1500)
+                .summarizer(model)      // les anciens tours sont résumés en arrière-plan
+                .build();
 
         Assistant assistant = AiServices.builder(Assistant.class)
                 .chatLanguageModel(model)
@@ -123,26 +146,23 @@ public class Test4_PasRag {
 
         // ============ TESTS ============
         System.out.println("\n Test 1 : Question générale (pas de RAG attendu)");
-        String reponse1 = assistant.chat("Bonjour");
+        String reponse1 = metrics.time(RagMetrics.Stage.TOTAL, () -> assistant.chat("Bonjour"));
         System.out.println(" Réponse : " + reponse1 + "\n");
 
         System.out.println(" Test 2 : Question sur le RAG (RAG attendu)");
-        String reponse2 = assistant.chat("Qu'est-ce que le RAG ?");
+        String reponse2 = metrics.time(RagMetrics.Stage.TOTAL, () -> assistant.chat("Qu'est-ce que le RAG ?"));
         System.out.println(" Réponse : " + reponse2 + "\n");
 
         System.out.println(" Test 3 : Question hors contexte (pas de RAG attendu)");
-        String reponse3 = assistant.chat("Quelle est la capitale de la France ?");
+        String reponse3 = metrics.time(RagMetrics.Stage.TOTAL, () -> assistant.chat("Quelle est la capitale de la France ?"));
         System.out.println(" Réponse : " + reponse3);
-    }
-
-    private static void configureLogger() {
-        Logger packageLogger = Logger.getLogger("dev.langchain4j");
-        packageLogger.setLevel(Level.FINE);
-
-        ConsoleHandler handler = new ConsoleHandler();
-        handler.setLevel(Level.FINE);
-        packageLogger.addHandler(handler);
 
-        System.out.println(" Logging activé !\n");
+        System.out.println("\n " + queryRouter.stats());
+        System.out.println(" " + routageLm.stats());
+        System.out.println(" " + queryEmbeddingModel.stats());
+        System.out.println(" " + chatMemory.stats());
+        System.out.println(" " + model.stats());
+        System.out.println(metrics.snapshot().summary());
+        metrics.payloadLog().close();
     }
 }
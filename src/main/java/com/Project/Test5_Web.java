@@ -1,57 +1,33 @@
 package com.Project;
 
-import dev.langchain4j.data.document.Document;
-import dev.langchain4j.data.document.DocumentParser;
-import dev.langchain4j.data.document.DocumentSplitter;
-import dev.langchain4j.data.document.loader.FileSystemDocumentLoader;
-import dev.langchain4j.data.document.parser.apache.tika.ApacheTikaDocumentParser;
-import dev.langchain4j.data.document.splitter.DocumentSplitters;
-import dev.langchain4j.data.embedding.Embedding;
-import dev.langchain4j.data.segment.TextSegment;
-import dev.langchain4j.memory.ChatMemory;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
-import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.StreamingChatLanguageModel;
 import dev.langchain4j.model.embedding.EmbeddingModel;
 import dev.langchain4j.model.embedding.onnx.allminilml6v2.AllMiniLmL6V2EmbeddingModel;
-import dev.langchain4j.model.googleai.GoogleAiGeminiChatModel;
-import dev.langchain4j.model.output.Response;
-import dev.langchain4j.rag.DefaultRetrievalAugmentor;
-import dev.langchain4j.rag.RetrievalAugmentor;
-import dev.langchain4j.rag.content.retriever.ContentRetriever;
-import dev.langchain4j.rag.content.retriever.EmbeddingStoreContentRetriever;
-import dev.langchain4j.rag.content.retriever.WebSearchContentRetriever;
-import dev.langchain4j.rag.query.router.DefaultQueryRouter;
-import dev.langchain4j.rag.query.router.QueryRouter;
-import dev.langchain4j.service.AiServices;
-import dev.langchain4j.store.embedding.EmbeddingStore;
-import dev.langchain4j.store.embedding.inmemory.InMemoryEmbeddingStore;
+import dev.langchain4j.model.googleai.GoogleAiGeminiStreamingChatModel;
 import dev.langchain4j.web.search.WebSearchEngine;
 import dev.langchain4j.web.search.tavily.TavilyWebSearchEngine;
 
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
+import java.time.Duration;
 import java.util.Scanner;
-import java.util.logging.ConsoleHandler;
-import java.util.logging.Level;
-import java.util.logging.Logger;
 
 public class Test5_Web {
 
     public static void main(String[] args) throws Exception {
 
-        configureLogger();
+        RagMetrics metrics = RagMetrics.fromSystemProperties();
 
         String llmKey = System.getenv("GEMINI_API_KEY");
         String tavilyKey = System.getenv("TAVILY_KEY");
 
-        ChatLanguageModel model = GoogleAiGeminiChatModel.builder()
+        StreamingChatLanguageModel model = new InstrumentedStreamingChatModel(GoogleAiGeminiStreamingChatModel.builder()
                 .apiKey(llmKey)
                 .modelName("gemini-2.0-flash-exp")
                 .temperature(0.3)
-                .logRequestsAndResponses(true)
-                .build();
+                .logRequestsAndResponses(Boolean.getBoolean("rag.log.http"))
+                .build(), metrics);
 
         // ============ PHASE 1 : INGESTION DOCUMENT LOCAL ============
         EmbeddingModel embeddingModel = new AllMiniLmL6V2EmbeddingModel();
@@ -59,59 +35,47 @@ public class Test5_Web {
         URL fileUrl = Test5_Web.class.getResource("/rag.pdf");
         Path path = Paths.get(fileUrl.toURI());
 
-        DocumentParser parser = new ApacheTikaDocumentParser();
-        Document document = FileSystemDocumentLoader.loadDocument(path, parser);
-
-        DocumentSplitter splitter = DocumentSplitters.recursive(600, 0);
-        List<TextSegment> segments = splitter.split(document);
-
-        Response<List<Embedding>> response = embeddingModel.embedAll(segments);
-        List<Embedding> embeddings = response.content();
-
-        EmbeddingStore<TextSegment> embeddingStore = new InMemoryEmbeddingStore<>();
-        embeddingStore.addAll(embeddings, segments);
-
-        // ContentRetriever pour le document local
-        ContentRetriever contentRetrieverLocal = EmbeddingStoreContentRetriever.builder()
-                .embeddingStore(embeddingStore)
+        PersistentEmbeddingIndex.Contents contents;
+        try (IngestionPipeline pipeline = IngestionPipeline.builder()
                 .embeddingModel(embeddingModel)
-                .maxResults(2)
-                .minScore(0.5)
-                .build();
-
+                .maxSegmentSize(600)
+                .maxOverlap(0)
+                .build()) {
+            contents = pipeline.ingest(path);
+        }
         System.out.println(" Document local ingéré !");
 
         // ============ PHASE 2 : RECHERCHE WEB ============
-        WebSearchEngine webSearchEngine = TavilyWebSearchEngine.builder()
-                .apiKey(tavilyKey)
-                .build();
-
-        ContentRetriever contentRetrieverWeb = WebSearchContentRetriever.builder()
-                .webSearchEngine(webSearchEngine)
-                .maxResults(3)
-                .build();
+        // -Drag.web.stub.delay.ms=... remplace Tavily par un moteur local au délai injecté
+        String stubDelay = System.getProperty("rag.web.stub.delay.ms");
+        WebSearchEngine webSearchEngine = stubDelay != null
+                ? new StubWebSearchEngine(Duration.ofMillis(Long.parseLong(stubDelay)))
+                : TavilyWebSearchEngine.builder()
+                        .apiKey(tavilyKey)
+                        .build();
 
         System.out.println(" Moteur de recherche Web configuré !");
 
-        // ============ PHASE 3 : ROUTAGE ============
-        QueryRouter queryRouter = new DefaultQueryRouter(
-                contentRetrieverLocal,
-                contentRetrieverWeb
-        );
-
-        RetrievalAugmentor retrievalAugmentor = DefaultRetrievalAugmentor.builder()
-                .queryRouter(queryRouter)
+        // ============ PHASE 3 : SOURCES ET CONTEXTE ============
+        // Sans modèle de routage, chaque question va au document local et au Web, en parallèle ;
+        // chaque source a sa propre échéance : si le Web est en retard, la réponse part avec le
+        // document local seul. Avec un cross-encodeur, les 3 meilleurs candidats sont gardés
+        RagPipeline ragPipeline = RagPipeline.builder()
+                .metrics(metrics)
+                .embeddingModel(embeddingModel)
+                .streamingModel(model)
+                .document(path, contents, RagPipeline.RAG_COURSE)
+                .web(webSearchEngine)
+                .maxResults(3)
                 .build();
 
         // ============ PHASE 4 : ASSISTANT ============
-        ChatMemory chatMemory = MessageWindowChatMemory.withMaxMessages(10);
-
-        Assistant assistant = AiServices.builder(Assistant.class)
-                .chatLanguageModel(model)
-                .chatMemory(chatMemory)
-                .retrievalAugmentor(retrievalAugmentor)
+        TokenBudgetChatMemory chatMemory = TokenBudgetChatMemory.builder()
+                .maxTokens(1500)        // budget en tokens plutôt qu'en messages
                 .build();
 
+        StreamingAssistant assistant = ragPipeline.assistant(chatMemory);
+
         // ============ POSER DES QUESTIONS ============
         Scanner scanner = new Scanner(System.in);
         System.out.println("\n Assistant RAG avec Recherche Web prêt !");
@@ -122,6 +86,9 @@ public class Test5_Web {
             String question = scanner.nextLine();
 
             if ("quit".equalsIgnoreCase(question.trim())) {
+                System.out.println(ragPipeline.stats());
+                System.out.println(metrics.snapshot().summary());
+                System.out.println(chatMemory.stats());
                 System.out.println("Au revoir !");
                 break;
             }
@@ -130,21 +97,13 @@ public class Test5_Web {
                 continue;
             }
 
-            String reponse = assistant.chat(question);
-            System.out.println("\n Réponse : " + reponse + "\n");
+            System.out.print("\n Réponse : ");
+            metrics.time(RagMetrics.Stage.TOTAL, () -> StreamingConsole.print(() -> assistant.chat(question)));
+            System.out.println("   (" + chatMemory.lastPromptReport() + ")");
+            System.out.println();
         }
 
         scanner.close();
-    }
-
-    private static void configureLogger() {
-        Logger packageLogger = Logger.getLogger("dev.langchain4j");
-        packageLogger.setLevel(Level.FINE);
-
-        ConsoleHandler handler = new ConsoleHandler();
-        handler.setLevel(Level.FINE);
-        packageLogger.addHandler(handler);
-
-        System.out.println(" Logging activé !\n");
+        metrics.payloadLog().close();
     }
 }
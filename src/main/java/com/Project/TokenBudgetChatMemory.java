@@ -0,0 +1,334 @@
+package com.Project;
+
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+import dev.langchain4j.model.chat.ChatLanguageModel;
+import dev.langchain4j.model.chat.request.ChatRequest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Mémoire de conversation bornée en tokens plutôt qu'en messages.
+ * <p>
+ * Quand l'historique dépasse {@code maxTokens}, les plus anciens messages sortent aussitôt de la
+ * fenêtre (jusqu'à {@code compactTo} tokens) et sont confiés à un thread d'arrière-plan qui les
+ * fond dans un résumé glissant ; le résumé est joint au message système des appels suivants.
+ * Aucune requête n'attend le résumé. Sans modèle de résumé, les messages sortis sont oubliés.
+ * {@link #clear()} remet aussi les statistiques à zéro et écarte les résumés encore en cours.
+ * <p>
+ * Les tokens sont estimés à 4 caractères par token (pas de tokenizer local pour Gemini).
+ * Chaque question (UserMessage ajouté) compte les tokens envoyés et ceux qu'aurait coûté
+ * l'historique complet ; messages() n'a pas d'effet de bord, AiServices l'appelle plusieurs fois par tour.
+ */
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    // Partagé par toutes les mémoires : les résumés sont rares et ne doivent pas se concurrencer
+    private static final ExecutorService SUMMARY_EXECUTOR = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "chat-memory-summary");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private static final int CHARS_PER_TOKEN = 4;
+    private static final int TOKENS_PER_MESSAGE = 4;
+
+    private final Object id;
+    private final int maxTokens;
+    private final int compactTo;
+    private final ChatLanguageModel summarizer;
+    private final int maxSummaryTokens;
+    private final Executor executor;
+
+    private SystemMessage systemMessage;
+    private final List<ChatMessage> recent = new ArrayList<>();
+    private int recentTokens;
+    private String summary;
+    // Les résumés d'une même mémoire s'enchaînent : chacun part du précédent
+    private CompletableFuture<Void> summarizing = CompletableFuture.completedFuture(null);
+    // Incrémenté par clear() : un résumé lancé avant n'écrit plus rien
+    private long generation;
+
+    // ============ STATISTIQUES ============
+    private long historyTokens;        // tout ce qui a été ajouté, sans compaction
+    private int lastSentTokens;
+    private int lastHistoryTokens;
+    private long prompts;
+    private long sentTokens;
+    private long savedTokens;
+    private long summaries;
+    private long failedSummaries;
+
+    private TokenBudgetChatMemory(Builder builder) {
+        this.id = builder.id;
+        this.maxTokens = builder.maxTokens;
+        this.compactTo = builder.maxTokens * 3 / 4;
+        this.summarizer = builder.summarizer;
+        this.maxSummaryTokens = builder.maxSummaryTokens;
+        this.executor = builder.executor;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public synchronized void add(ChatMessage message) {
+        if (message instanceof SystemMessage system) {
+            // Même règle que MessageWindowChatMemory : un seul message système, le dernier reçu
+            systemMessage = system;
+            return;
+        }
+        int tokens = estimate(message);
+        recent.add(message);
+        recentTokens += tokens;
+        historyTokens += tokens;
+        if (fixedTokens() + recentTokens > maxTokens) {
+            compact();
+        }
+        if (message instanceof UserMessage) {
+            recordPrompt();
+        }
+    }
+
+    @Override
+    public synchronized List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(recent.size() + 1);
+        SystemMessage system = systemWithSummary();
+        if (system != null) {
+            messages.add(system);
+        }
+        messages.addAll(recent);
+        return messages;
+    }
+
+    @Override
+    public synchronized void clear() {
+        systemMessage = null;
+        recent.clear();
+        recentTokens = 0;
+        summary = null;
+        generation++;
+        summarizing = CompletableFuture.completedFuture(null);
+        historyTokens = 0;
+        lastSentTokens = 0;
+        lastHistoryTokens = 0;
+        prompts = 0;
+        sentTokens = 0;
+        savedTokens = 0;
+        summaries = 0;
+        failedSummaries = 0;
+    }
+
+    // La fenêtre telle qu'elle partira avec la question qui vient d'arriver
+    private void recordPrompt() {
+        lastSentTokens = fixedTokens() + recentTokens;
+        lastHistoryTokens = (int) historyTokens + (systemMessage == null ? 0 : estimate(systemMessage));
+        prompts++;
+        sentTokens += lastSentTokens;
+        savedTokens += Math.max(0, lastHistoryTokens - lastSentTokens);
+    }
+
+    // ============ COMPACTION ============
+
+    // Le dernier message (la question en cours) reste toujours dans la fenêtre
+    private void compact() {
+        List<ChatMessage> evicted = new ArrayList<>();
+        while (recent.size() > 1 && fixedTokens() + recentTokens > compactTo) {
+            evict(evicted);
+        }
+        // La fenêtre recommence sur une question : ni réponse ni résultat d'outil orphelins
+        while (recent.size() > 1 && !(recent.get(0) instanceof UserMessage)) {
+            evict(evicted);
+        }
+        if (summarizer != null && !evicted.isEmpty()) {
+            long current = generation;
+            summarizing = summarizing.thenRunAsync(() -> summarize(evicted, current), executor);
+        }
+    }
+
+    private void evict(List<ChatMessage> evicted) {
+        ChatMessage oldest = recent.remove(0);
+        recentTokens -= estimate(oldest);
+        evicted.add(oldest);
+    }
+
+    private void summarize(List<ChatMessage> evicted, long expectedGeneration) {
+        String previous;
+        synchronized (this) {
+            if (generation != expectedGeneration) {
+                return;
+            }
+            previous = summary;
+        }
+        StringBuilder exchanges = new StringBuilder();
+        if (previous != null) {
+            exchanges.append("Résumé précédent :\n").append(previous).append("\n\n");
+        }
+        exchanges.append("Nouveaux échanges :\n");
+        for (ChatMessage message : evicted) {
+            String text = text(message);
+            if (!text.isBlank()) {
+                exchanges.append(message instanceof UserMessage ? "Utilisateur : " : "Assistant : ")
+                        .append(text).append('\n');
+            }
+        }
+        try {
+            String updated = summarizer.chat(ChatRequest.builder()
+                    .messages(List.of(
+                            SystemMessage.from("Tu résumes une conversation entre un utilisateur et un assistant. "
+                                    + "Garde les faits, les questions posées et les réponses utiles pour la suite, "
+                                    + "en moins de " + maxSummaryTokens * 3 / 4 + " mots, sans commentaire."),
+                            UserMessage.from(exchanges.toString())))
+                    .build()).aiMessage().text();
+            int maxChars = maxSummaryTokens * CHARS_PER_TOKEN;
+            synchronized (this) {
+                // Mémoire vidée pendant l'appel : le résumé porte sur une conversation oubliée
+                if (generation == expectedGeneration) {
+                    summary = updated.length() > maxChars ? updated.substring(0, maxChars) : updated;
+                    summaries++;
+                }
+            }
+        } catch (RuntimeException e) {
+            // Le résumé précédent reste en place ; les messages sortis sont perdus
+            synchronized (this) {
+                if (generation == expectedGeneration) {
+                    failedSummaries++;
+                }
+            }
+        }
+    }
+
+    private SystemMessage systemWithSummary() {
+        if (summary == null) {
+            return systemMessage;
+        }
+        String header = systemMessage == null ? "" : systemMessage.text() + "\n\n";
+        return SystemMessage.from(header + "Résumé du début de la conversation :\n" + summary);
+    }
+
+    // Tokens hors fenêtre : message système et résumé
+    private int fixedTokens() {
+        SystemMessage system = systemWithSummary();
+        return system == null ? 0 : estimate(system);
+    }
+
+    // ============ ESTIMATION DES TOKENS ============
+
+    static int estimate(ChatMessage message) {
+        return TOKENS_PER_MESSAGE + estimateTokens(text(message));
+    }
+
+    /**
+     * Tokens estimés d'un texte (aussi utilisé pour le budget du contexte retrouvé).
+     */
+    static int estimateTokens(String text) {
+        return (text.length() + CHARS_PER_TOKEN - 1) / CHARS_PER_TOKEN;
+    }
+
+    private static String text(ChatMessage message) {
+        String text = null;
+        if (message instanceof UserMessage user) {
+            text = user.hasSingleText() ? user.singleText() : user.contents().toString();
+        } else if (message instanceof AiMessage ai) {
+            text = ai.hasToolExecutionRequests() ? ai.toolExecutionRequests().toString() : ai.text();
+        } else if (message instanceof SystemMessage system) {
+            text = system.text();
+        } else if (message instanceof ToolExecutionResultMessage result) {
+            text = result.text();
+        }
+        return text == null ? "" : text;
+    }
+
+    /**
+     * Attend la fin des résumés en cours (arrêt propre, mesures).
+     */
+    public void awaitSummaries() {
+        CompletableFuture<Void> pending;
+        synchronized (this) {
+            pending = summarizing;
+        }
+        pending.join();
+    }
+
+    /**
+     * Tokens du dernier appel, comparés à l'historique complet.
+     */
+    public synchronized String lastPromptReport() {
+        return String.format("Mémoire : %d tokens envoyés, %d avec l'historique complet",
+                lastSentTokens, lastHistoryTokens);
+    }
+
+    public synchronized String stats() {
+        long withoutCompaction = sentTokens + savedTokens;
+        return String.format("Mémoire : %d questions, %d tokens envoyés au lieu de %d (%.0f %% économisés), %d résumés (%d échecs)",
+                prompts, sentTokens, withoutCompaction,
+                withoutCompaction == 0 ? 0.0 : 100.0 * savedTokens / withoutCompaction,
+                summaries, failedSummaries);
+    }
+
+    public static class Builder {
+
+        private Object id = UUID.randomUUID().toString();
+        private int maxTokens = 1500;
+        private ChatLanguageModel summarizer;
+        private int maxSummaryTokens = 200;
+        private Executor executor = SUMMARY_EXECUTOR;
+
+        public Builder id(Object id) {
+            this.id = id;
+            return this;
+        }
+
+        /**
+         * Budget de l'historique (message système et résumé compris) ; au-delà, la fenêtre
+         * est ramenée aux trois quarts.
+         */
+        public Builder maxTokens(int maxTokens) {
+            this.maxTokens = maxTokens;
+            return this;
+        }
+
+        /**
+         * Modèle qui résume les messages sortis de la fenêtre ; sans lui, ils sont oubliés.
+         */
+        public Builder summarizer(ChatLanguageModel summarizer) {
+            this.summarizer = summarizer;
+            return this;
+        }
+
+        public Builder maxSummaryTokens(int maxSummaryTokens) {
+            this.maxSummaryTokens = maxSummaryTokens;
+            return this;
+        }
+
+        public Builder executor(Executor executor) {
+            this.executor = executor;
+            return this;
+        }
+
+        public TokenBudgetChatMemory build() {
+            if (maxTokens < 1 || maxSummaryTokens < 1) {
+                throw new IllegalArgumentException("maxTokens et maxSummaryTokens doivent être positifs");
+            }
+            if (summarizer != null && maxSummaryTokens >= maxTokens / 2) {
+                throw new IllegalArgumentException("Le résumé doit tenir dans la moitié du budget");
+            }
+            return new TokenBudgetChatMemory(this);
+        }
+    }
+}
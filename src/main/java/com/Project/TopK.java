@@ -0,0 +1,93 @@
+package com.Project;
+
+/**
+ * Sélection des k meilleurs candidats avec un tas-min borné sur des tableaux primitifs :
+ * aucune allocation par candidat pendant le parcours.
+ */
+final class TopK {
+
+    private final int[] indexes;
+    private final float[] scores;
+    private int size;
+
+    TopK(int k) {
+        this.indexes = new int[k];
+        this.scores = new float[k];
+    }
+
+    /**
+     * Score minimal pour entrer dans le tas (-infini tant qu'il n'est pas plein).
+     */
+    float threshold() {
+        return size < scores.length ? Float.NEGATIVE_INFINITY : scores[0];
+    }
+
+    void offer(int index, float score) {
+        if (size < scores.length) {
+            indexes[size] = index;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (score > scores[0]) {
+            indexes[0] = index;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Vide le tas dans les tableaux fournis, du meilleur score au moins bon.
+     */
+    void drainDescending(int[] outIndexes, float[] outScores) {
+        for (int i = size - 1; i >= 0; i--) {
+            outIndexes[i] = indexes[0];
+            outScores[i] = scores[0];
+            size--;
+            indexes[0] = indexes[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int smallest = left;
+            int right = left + 1;
+            if (right < size && scores[right] < scores[left]) {
+                smallest = right;
+            }
+            if (scores[i] <= scores[smallest]) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        int index = indexes[a];
+        indexes[a] = indexes[b];
+        indexes[b] = index;
+        float score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -0,0 +1,325 @@
+package com.Project;
+
+import dev.langchain4j.data.embedding.Embedding;
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingMatch;
+import dev.langchain4j.store.embedding.EmbeddingSearchRequest;
+import dev.langchain4j.store.embedding.EmbeddingSearchResult;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+import dev.langchain4j.store.embedding.filter.Filter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.IntConsumer;
+
+/**
+ * Remplaçant de InMemoryEmbeddingStore pour la recherche top-k.
+ * <p>
+ * Tous les vecteurs, normalisés à l'insertion, sont rangés à la suite dans un seul float[] :
+ * la recherche est un parcours linéaire de produits scalaires (SIMD si disponible, voir
+ * {@link VectorMath}) et la sélection passe par un tas borné {@link TopK}, sans objet par candidat.
+ * Les scores sont sur la même échelle que InMemoryEmbeddingStore, minScore(0.5) garde son sens.
+ * <p>
+ * Les métadonnées usuelles (fichier, page, section, heure d'ingestion) sont indexées par des
+ * ensembles compressés ({@link MetadataBitmapIndex}) : une recherche filtrée ne calcule le produit
+ * scalaire que des segments retenus par le filtre, au lieu de tester le filtre sur chaque segment.
+ */
+public class VectorEmbeddingStore implements ReplaceableEmbeddingStore {
+
+    // Taille maximale d'un tableau Java en pratique (quelques mots d'en-tête réservés par la JVM)
+    private static final int MAX_ARRAY_LENGTH = Integer.MAX_VALUE - 8;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private int dimension = -1;
+    private int size;
+    private float[] vectors = new float[0];
+    private String[] ids = new String[0];
+    private TextSegment[] segments = new TextSegment[0];
+    private final Map<String, Integer> positions = new HashMap<>();
+    private final MetadataBitmapIndex index;
+
+    public VectorEmbeddingStore() {
+        this(MetadataBitmapIndex.DEFAULT_KEYS);
+    }
+
+    /**
+     * @param indexedKeys clés de métadonnées indexées pour les recherches filtrées
+     */
+    public VectorEmbeddingStore(Collection<String> indexedKeys) {
+        this.index = new MetadataBitmapIndex(indexedKeys);
+    }
+
+    @Override
+    public String add(Embedding embedding) {
+        String id = UUID.randomUUID().toString();
+        add(id, embedding);
+        return id;
+    }
+
+    @Override
+    public void add(String id, Embedding embedding) {
+        addAll(List.of(id), List.of(embedding), null);
+    }
+
+    @Override
+    public String add(Embedding embedding, TextSegment segment) {
+        String id = UUID.randomUUID().toString();
+        addAll(List.of(id), List.of(embedding), List.of(segment));
+        return id;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, null);
+        return ids;
+    }
+
+    @Override
+    public List<String> addAll(List<Embedding> embeddings, List<TextSegment> segments) {
+        List<String> ids = generateIds(embeddings.size());
+        addAll(ids, embeddings, segments);
+        return ids;
+    }
+
+    @Override
+    public void addAll(List<String> ids, List<Embedding> embeddings, List<TextSegment> segments) {
+        if (segments != null && segments.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Autant de segments que d'embeddings sont attendus");
+        }
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < embeddings.size(); i++) {
+                insert(ids.get(i), embeddings.get(i).vector(), segments == null ? null : segments.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Retire oldIds et ajoute les nouveaux embeddings sous un seul verrou d'écriture : une recherche
+     * voit l'ancienne version d'un document ou la nouvelle, jamais les deux ni aucune.
+     * Les embeddings sont préparés par l'appelant, la section critique se limite aux copies.
+     */
+    @Override
+    public void replaceAll(Collection<String> oldIds,
+                           List<String> ids,
+                           List<Embedding> embeddings,
+                           List<TextSegment> segments) {
+        if (segments != null && segments.size() != embeddings.size()) {
+            throw new IllegalArgumentException("Autant de segments que d'embeddings sont attendus");
+        }
+        lock.writeLock().lock();
+        try {
+            for (String id : oldIds) {
+                removeAt(id);
+            }
+            for (int i = 0; i < embeddings.size(); i++) {
+                insert(ids.get(i), embeddings.get(i).vector(), segments == null ? null : segments.get(i));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void insert(String id, float[] vector, TextSegment segment) {
+        if (dimension == -1) {
+            dimension = vector.length;
+        } else if (vector.length != dimension) {
+            throw new IllegalArgumentException("Dimension " + vector.length + " au lieu de " + dimension);
+        }
+
+        Integer existing = positions.get(id);
+        int position = existing != null ? existing : size++;
+        ensureCapacity(size);
+
+        System.arraycopy(VectorMath.normalize(vector), 0, vectors, position * dimension, dimension);
+        index.remove(position, segments[position]);
+        index.add(position, segment);
+        ids[position] = id;
+        segments[position] = segment;
+        positions.put(id, position);
+    }
+
+    private void ensureCapacity(int required) {
+        if (required <= ids.length) {
+            return;
+        }
+        int capacity = grownCapacity(ids.length, required, dimension);
+        vectors = Arrays.copyOf(vectors, capacity * dimension);
+        ids = Arrays.copyOf(ids, capacity);
+        segments = Arrays.copyOf(segments, capacity);
+    }
+
+    /**
+     * Nouvelle capacité (en vecteurs) d'un tableau plat de {@code perVector} valeurs par vecteur :
+     * le double de l'actuelle, plafonnée pour que capacité x perVector reste un index de tableau.
+     * Calcul en long : en int, capacité x dimension déborde bien avant la mémoire disponible.
+     */
+    static int grownCapacity(int current, int required, int perVector) {
+        long maxCapacity = MAX_ARRAY_LENGTH / Math.max(1, perVector);
+        if (required > maxCapacity) {
+            throw new IllegalStateException(String.format(
+                    "%d vecteurs de dimension %d dépassent la taille maximale d'un tableau (%d vecteurs au plus)",
+                    required, perVector, maxCapacity));
+        }
+        long capacity = Math.max(required, Math.max(16L, 2L * current));
+        return (int) Math.min(capacity, maxCapacity);
+    }
+
+    @Override
+    public void removeAll(Collection<String> idsToRemove) {
+        lock.writeLock().lock();
+        try {
+            for (String id : idsToRemove) {
+                removeAt(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll(Filter filter) {
+        lock.writeLock().lock();
+        try {
+            List<String> matching = new ArrayList<>();
+            forEachCandidate(filter, i -> matching.add(ids[i]));
+            matching.forEach(this::removeAt);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void removeAll() {
+        lock.writeLock().lock();
+        try {
+            Arrays.fill(ids, 0, size, null);
+            Arrays.fill(segments, 0, size, null);
+            positions.clear();
+            index.clear();
+            size = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Le dernier élément vient boucher le trou : les vecteurs restent contigus
+    private void removeAt(String id) {
+        Integer position = positions.remove(id);
+        if (position == null) {
+            return;
+        }
+        int last = --size;
+        index.remove(position, segments[position]);
+        if (position != last) {
+            System.arraycopy(vectors, last * dimension, vectors, position * dimension, dimension);
+            index.remove(last, segments[last]);
+            index.add(position, segments[last]);
+            ids[position] = ids[last];
+            segments[position] = segments[last];
+            positions.put(ids[position], position);
+        }
+        ids[last] = null;
+        segments[last] = null;
+    }
+
+    @Override
+    public EmbeddingSearchResult<TextSegment> search(EmbeddingSearchRequest request) {
+        float[] query = VectorMath.normalize(request.queryEmbedding().vector());
+        Filter filter = request.filter();
+        // score de pertinence (cos + 1) / 2 >= minScore  <=>  cos >= 2 * minScore - 1
+        float minCosine = (float) (2 * request.minScore() - 1);
+
+        lock.readLock().lock();
+        try {
+            if (size == 0 || request.maxResults() <= 0) {
+                return new EmbeddingSearchResult<>(Collections.emptyList());
+            }
+            if (query.length != dimension) {
+                throw new IllegalArgumentException("Dimension " + query.length + " au lieu de " + dimension);
+            }
+
+            TopK topK = new TopK(Math.min(request.maxResults(), size));
+            if (filter == null) {
+                for (int i = 0, offset = 0; i < size; i++, offset += dimension) {
+                    offer(topK, i, VectorMath.dot(vectors, offset, query, dimension), minCosine);
+                }
+            } else {
+                forEachCandidate(filter, i -> offer(topK, i, VectorMath.dot(vectors, i * dimension, query, dimension), minCosine));
+            }
+            return new EmbeddingSearchResult<>(toMatches(topK));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void offer(TopK topK, int position, float cosine, float minCosine) {
+        if (cosine >= minCosine && cosine > topK.threshold()) {
+            topK.offer(position, cosine);
+        }
+    }
+
+    // Positions qui satisfont le filtre : celles de l'index, vérifiées une à une seulement si la
+    // sélection est inexacte ; sans index utilisable, parcours complet
+    private void forEachCandidate(Filter filter, IntConsumer action) {
+        MetadataBitmapIndex.Selection selection = index.select(filter);
+        if (selection == null) {
+            for (int i = 0; i < size; i++) {
+                if (segments[i] != null && filter.test(segments[i].metadata())) {
+                    action.accept(i);
+                }
+            }
+        } else if (selection.exact()) {
+            selection.positions().forEach(action);
+        } else {
+            selection.positions().forEach(i -> {
+                if (filter.test(segments[i].metadata())) {
+                    action.accept(i);
+                }
+            });
+        }
+    }
+
+    private List<EmbeddingMatch<TextSegment>> toMatches(TopK topK) {
+        int count = topK.size();
+        int[] best = new int[count];
+        float[] cosines = new float[count];
+        topK.drainDescending(best, cosines);
+
+        List<EmbeddingMatch<TextSegment>> matches = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int position = best[i];
+            float[] vector = Arrays.copyOfRange(vectors, position * dimension, (position + 1) * dimension);
+            matches.add(new EmbeddingMatch<>(
+                    VectorMath.relevanceScore(cosines[i]),
+                    ids[position],
+                    Embedding.from(vector),
+                    segments[position]));
+        }
+        return matches;
+    }
+
+    /**
+     * Nombre d'embeddings stockés.
+     */
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.Project;
+
+/**
+ * Calculs vectoriels des magasins d'embeddings.
+ * Le produit scalaire passe par l'API Vector du JDK (SIMD) quand la JVM est lancée avec
+ * --add-modules jdk.incubator.vector, sinon par une boucle scalaire.
+ */
+final class VectorMath {
+
+    static final boolean SIMD = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+
+    private VectorMath() {
+    }
+
+    /**
+     * Produit scalaire entre {@code query} et le vecteur rangé à {@code offset} dans {@code data}.
+     */
+    static float dot(float[] data, int offset, float[] query, int length) {
+        return dot(data, offset, query, 0, length);
+    }
+
+    static float dot(float[] a, int aOffset, float[] b, int bOffset, int length) {
+        if (SIMD) {
+            return SimdKernels.dot(a, aOffset, b, bOffset, length);
+        }
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += a[aOffset + i] * b[bOffset + i];
+        }
+        return sum;
+    }
+
+    /**
+     * Produit scalaire entre des codes int8 rangés à {@code offset} et {@code query}.
+     */
+    static float dot(byte[] codes, int offset, float[] query, int length) {
+        if (SIMD && SimdKernels.BYTE_DOT) {
+            return SimdKernels.dot(codes, offset, query, length);
+        }
+        float sum = 0f;
+        for (int i = 0; i < length; i++) {
+            sum += codes[offset + i] * query[i];
+        }
+        return sum;
+    }
+
+    /**
+     * Copie normalisée (norme 1) : le produit scalaire donne alors directement le cosinus.
+     */
+    static float[] normalize(float[] vector) {
+        float norm = (float) Math.sqrt(dot(vector, 0, vector, vector.length));
+        float[] normalized = new float[vector.length];
+        if (norm == 0f) {
+            return normalized;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            normalized[i] = vector[i] / norm;
+        }
+        return normalized;
+    }
+
+    /**
+     * Score de pertinence dans [0, 1], même échelle que InMemoryEmbeddingStore (minScore inchangé).
+     */
+    static double relevanceScore(float cosine) {
+        return (cosine + 1) / 2.0;
+    }
+}
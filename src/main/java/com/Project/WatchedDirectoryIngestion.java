@@ -0,0 +1,189 @@
+package com.Project;
+
+import dev.langchain4j.data.segment.TextSegment;
+import dev.langchain4j.store.embedding.EmbeddingStore;
+
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ingestion d'un répertoire surveillé (WatchService) : les PDF ajoutés ou modifiés sont indexés
+ * en arrière-plan, les PDF supprimés sont retirés du magasin, sans redémarrer l'application.
+ * <p>
+ * Un fichier n'est traité qu'après {@code quietPeriod} ms sans nouvel événement (copie en cours).
+ * L'ancienne et la nouvelle version d'un document sont échangées en une opération
+ * ({@link ReplaceableEmbeddingStore#replaceAll}) : les recherches en cours ne voient jamais le
+ * document disparaître ni en double. Le magasin doit donc être un {@link ReplaceableEmbeddingStore}.
+ */
+public class WatchedDirectoryIngestion implements AutoCloseable {
+
+    private static final long QUIET_PERIOD_MILLIS = 500;
+
+    private final Path directory;
+    private final IngestionPipeline pipeline;
+    private final ReplaceableEmbeddingStore embeddingStore;
+    private final WatchService watchService;
+    private final Thread watcher;
+
+    // Identifiants des segments de chaque document dans le magasin
+    private final Map<Path, List<String>> documents = new ConcurrentHashMap<>();
+    // Fichiers modifiés en attente, avec la date (ms) du dernier événement
+    private final Map<Path, Long> pending = new HashMap<>();
+    private volatile boolean closed;
+
+    private WatchedDirectoryIngestion(Path directory,
+                                      IngestionPipeline pipeline,
+                                      EmbeddingStore<TextSegment> embeddingStore) throws IOException {
+        if (!(embeddingStore instanceof ReplaceableEmbeddingStore replaceable)) {
+            throw new IllegalArgumentException("Le magasin doit remplacer un document en une opération (ReplaceableEmbeddingStore) : "
+                    + embeddingStore.getClass().getSimpleName());
+        }
+        this.directory = directory;
+        this.pipeline = pipeline;
+        this.embeddingStore = replaceable;
+        this.watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+        this.watcher = Thread.ofPlatform().daemon().name("ingestion-" + directory.getFileName()).unstarted(this::watch);
+    }
+
+    /**
+     * Ingère les PDF présents dans le répertoire puis surveille ses changements.
+     * La surveillance est enregistrée avant l'ingestion initiale : rien n'est perdu entre les deux.
+     */
+    public static WatchedDirectoryIngestion start(Path directory,
+                                                  IngestionPipeline pipeline,
+                                                  EmbeddingStore<TextSegment> embeddingStore) throws IOException {
+        WatchedDirectoryIngestion ingestion = new WatchedDirectoryIngestion(directory, pipeline, embeddingStore);
+        pipeline.ingestDirectory(directory).forEach(ingestion::publish);
+        ingestion.watcher.start();
+        return ingestion;
+    }
+
+    /**
+     * Documents actuellement indexés.
+     */
+    public Set<Path> documents() {
+        return Set.copyOf(documents.keySet());
+    }
+
+    // ============ SURVEILLANCE ============
+    private void watch() {
+        try {
+            while (!closed) {
+                WatchKey key = watchService.poll(QUIET_PERIOD_MILLIS / 2, TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    collect(key);
+                }
+                processQuietFiles();
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // arrêt demandé par close()
+        }
+    }
+
+    private void collect(WatchKey key) {
+        long now = System.currentTimeMillis();
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                // Des événements ont été perdus : on compare le répertoire à ce qui est indexé
+                rescan(now);
+            } else {
+                Path file = directory.resolve((Path) event.context());
+                if (IngestionPipeline.isPdf(file)) {
+                    pending.put(file, now);
+                }
+            }
+        }
+        key.reset();
+    }
+
+    // Même test que pour les événements (.PDF, .Pdf...) : un document indexé ne doit pas sembler supprimé
+    private void rescan(long now) {
+        Set<Path> present = new HashSet<>();
+        try (DirectoryStream<Path> pdfs = Files.newDirectoryStream(directory, IngestionPipeline::isPdf)) {
+            pdfs.forEach(present::add);
+        } catch (IOException e) {
+            System.out.println(" Répertoire illisible : " + e.getMessage());
+            return;
+        }
+        present.forEach(file -> pending.put(file, now));
+        documents.keySet().stream().filter(file -> !present.contains(file)).forEach(file -> pending.put(file, now));
+    }
+
+    private void processQuietFiles() {
+        long now = System.currentTimeMillis();
+        List<Path> ready = new ArrayList<>();
+        for (Iterator<Map.Entry<Path, Long>> it = pending.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Path, Long> entry = it.next();
+            if (now - entry.getValue() >= QUIET_PERIOD_MILLIS) {
+                ready.add(entry.getKey());
+                it.remove();
+            }
+        }
+        for (Path file : ready) {
+            try {
+                if (Files.exists(file)) {
+                    publish(file, pipeline.ingest(file));
+                } else {
+                    unpublish(file);
+                }
+            } catch (IOException | RuntimeException e) {
+                // Document en cours d'écriture ou illisible : l'ancienne version reste en service
+                System.out.println(" Ingestion impossible : " + file.getFileName() + " (" + e.getMessage() + ")");
+            }
+        }
+    }
+
+    // ============ MISE À JOUR DU MAGASIN ============
+    private void publish(Path file, PersistentEmbeddingIndex.Contents contents) {
+        List<String> ids = new ArrayList<>(contents.segments().size());
+        for (int i = 0; i < contents.segments().size(); i++) {
+            ids.add(UUID.randomUUID().toString());
+        }
+        List<String> previous = documents.getOrDefault(file, List.of());
+
+        embeddingStore.replaceAll(previous, ids, contents.embeddings(), contents.segments());
+        documents.put(file, ids);
+        System.out.println(" Document indexé : " + file.getFileName() + " (" + ids.size() + " segments)");
+    }
+
+    private void unpublish(Path file) throws IOException {
+        List<String> previous = documents.remove(file);
+        if (previous != null && !previous.isEmpty()) {
+            embeddingStore.removeAll(previous);
+            System.out.println(" Document retiré : " + file.getFileName());
+        }
+        pipeline.forget(file);
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        watchService.close();
+        try {
+            watcher.join(5000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}